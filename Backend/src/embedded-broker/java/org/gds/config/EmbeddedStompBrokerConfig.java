@@ -0,0 +1,34 @@
+package org.gds.config;
+
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+
+/**
+ * Only compiled into builds made with -Pembedded-broker.
+ * <p>
+ * Runs an in-memory Artemis broker with a STOMP acceptor when gds.app.stompBroker is
+ * "embedded". It stands in for an external broker in development: this node relays to it, and
+ * further nodes started in relay mode against this host share its topics. Nothing is persisted.
+ */
+@Configuration
+@ConditionalOnProperty(name = "gds.app.stompBroker", havingValue = "embedded")
+public class EmbeddedStompBrokerConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public EmbeddedActiveMQ embeddedStompBroker(@Value("${gds.app.stompRelayPort}") int port) throws Exception {
+        ConfigurationImpl configuration = new ConfigurationImpl();
+        configuration.setPersistenceEnabled(false);
+        configuration.setSecurityEnabled(false);
+        configuration.setJMXManagementEnabled(false);
+        configuration.addAcceptorConfiguration("stomp", "tcp://0.0.0.0:" + port + "?protocols=STOMP");
+
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(configuration);
+        return broker;
+    }
+}
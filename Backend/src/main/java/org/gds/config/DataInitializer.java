@@ -2,7 +2,10 @@ package org.gds.config;
 
 import org.gds.model.ERole;
 import org.gds.model.Role;
+import org.gds.model.User;
 import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.gds.service.ChatService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
@@ -13,6 +16,9 @@ public class DataInitializer implements CommandLineRunner {
     
     @Autowired
     private RoleRepository roleRepository;
+
+    @Autowired
+    private UserRepository userRepository;
     
     @Override
     public void run(String... args) throws Exception {
@@ -22,5 +28,19 @@ public class DataInitializer implements CommandLineRunner {
             
             System.out.println("Roles initialized successfully!");
         }
+
+        if (!userRepository.existsByUsername(ChatService.SYSTEM_USERNAME)) {
+            User system = new User();
+            system.setUsername(ChatService.SYSTEM_USERNAME);
+            system.setEmail("system@example.com");
+            system.setPassword("not-applicable");
+
+            system.setFirstName("System");
+            system.setLastName("User");
+            system.setPhoneNumber("-");
+            system.setLocation("N/A");
+
+            userRepository.save(system);
+        }
     }
 }
\ No newline at end of file
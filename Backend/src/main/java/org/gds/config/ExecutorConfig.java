@@ -0,0 +1,64 @@
+package org.gds.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+
+/**
+ * Spring Boot publishes the metrics of every executor bean under its bean name, e.g.
+ * executor.queued{name=signinExecutor}.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Runs password hashing for signin off the servlet threads. The queue is bounded so that a
+     * login storm is rejected early instead of exhausting Tomcat's worker pool.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor signinExecutor(@Value("${gds.app.signinThreads}") int threads,
+                                                 @Value("${gds.app.signinQueueCapacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("signin-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Removes uploaded files after the database rows that referenced them are deleted.
+     * A single thread is enough, since the work is off the request path.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor fileCleanupExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("file-cleanup-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Generates thumbnails and medium variants of uploaded photos. Decoding large images is
+     * memory hungry, so the pool is small and the queue bounded; uploads that find it full go
+     * without variants and are shown at full size.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor imageProcessingExecutor(@Value("${gds.app.imageProcessingThreads}") int threads,
+                                                          @Value("${gds.app.imageProcessingQueueCapacity}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("image-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+}
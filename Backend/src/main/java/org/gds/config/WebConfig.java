@@ -2,16 +2,24 @@ package org.gds.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.time.Duration;
+
 
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
+    private static final String[] MEDIA_DIRECTORIES = {"cars", "forum", "audio"};
+
+    // <sha-256><extension>, or a variant of it such as <sha-256>-w320.jpg; see MediaStorageService
+    private static final String FINGERPRINTED_FILENAME = "{filename:[0-9a-f]{64}(?:-w[0-9]+)?\\.[a-z0-9]{1,10}}";
 
     @Bean
     public CorsFilter corsFilter() {
@@ -35,5 +43,21 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addResourceHandler("/uploads/**")
                 .addResourceLocations("file:uploads/")
                 .setCachePeriod(3600);
+
+        // Uploaded media is stored under its content hash, so the content behind such a URL
+        // never changes. It may be cached for a year without revalidation, and its ETag is the
+        // hash itself rather than something computed per request. Media stored before
+        // content addressing keeps the default handling.
+        for (String directory : MEDIA_DIRECTORIES) {
+            registry.addResourceHandler("/" + directory + "/" + FINGERPRINTED_FILENAME)
+                    .addResourceLocations("file:uploads/" + directory + "/")
+                    .setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                    .setEtagGenerator(WebConfig::contentHashEtag);
+        }
+    }
+
+    private static String contentHashEtag(Resource resource) {
+        String filename = resource.getFilename();
+        return filename.substring(0, filename.lastIndexOf('.'));
     }
 }
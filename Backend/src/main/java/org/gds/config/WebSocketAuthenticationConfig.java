@@ -1,7 +1,8 @@
 package org.gds.config;
 
 import org.gds.security.jwt.JwtUtils;
-import org.gds.security.services.UserDetailsServiceImpl;
+import org.gds.security.services.TokenVersionService;
+import org.gds.security.services.UserDetailsImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,12 +18,12 @@ import org.springframework.messaging.support.ChannelInterceptor;
 import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.util.StringUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 
 import java.util.List;
+import java.util.Optional;
 
 
 @Configuration
@@ -36,7 +37,7 @@ public class WebSocketAuthenticationConfig implements WebSocketMessageBrokerConf
     private JwtUtils jwtUtils;
 
     @Autowired
-    private UserDetailsServiceImpl userDetailsService;
+    private TokenVersionService tokenVersionService;
 
 
     @Override
@@ -55,9 +56,12 @@ public class WebSocketAuthenticationConfig implements WebSocketMessageBrokerConf
                             String jwt = authHeader.substring(7);
 
                             try {
-                                if (jwtUtils.validateJwtToken(jwt)) {
-                                    String username = jwtUtils.getUserNameFromJwtToken(jwt);
-                                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                                Optional<UserDetailsImpl> principal = jwtUtils.parseAndValidate(jwt)
+                                        .flatMap(jwtUtils::getUserDetailsFromClaims)
+                                        .filter(tokenVersionService::isCurrent);
+                                if (principal.isPresent()) {
+                                    UserDetailsImpl userDetails = principal.get();
+                                    String username = userDetails.getUsername();
 
                                     UsernamePasswordAuthenticationToken authentication =
                                             new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
@@ -1,7 +1,9 @@
 package org.gds.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.util.ClassUtils;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -11,14 +13,65 @@ import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerCo
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
-    
+    private static final String EMBEDDED_BROKER_CONFIG = "org.gds.config.EmbeddedStompBrokerConfig";
+
+    @Value("${gds.app.stompBroker}")
+    private String brokerMode;
+
+    @Value("${gds.app.stompRelayHost}")
+    private String relayHost;
+
+    @Value("${gds.app.stompRelayPort}")
+    private int relayPort;
+
+    @Value("${gds.app.stompRelayLogin}")
+    private String relayLogin;
+
+    @Value("${gds.app.stompRelayPasscode}")
+    private String relayPasscode;
+
+    @Value("${gds.app.chatWriteBehind}")
+    private boolean chatWriteBehind;
+
+
+    /**
+     * The simple broker keeps subscriptions in this JVM, so it only works with a single node.
+     * In relay and embedded mode /topic is handled by a STOMP broker shared by all nodes, and
+     * startup fails if chat write-behind is enabled: a message queued on one node cannot be
+     * cancelled by a delete handled on another.
+     */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry config) {
-        config.enableSimpleBroker("/topic");
-        
+        if (!"simple".equals(brokerMode) && chatWriteBehind) {
+            throw new IllegalStateException("gds.app.stompBroker=" + brokerMode
+                    + " runs several nodes and requires gds.app.chatWriteBehind=false");
+        }
+
+        switch (brokerMode) {
+            case "simple" -> config.enableSimpleBroker("/topic");
+            case "relay" -> enableRelay(config, relayHost);
+            case "embedded" -> {
+                if (!ClassUtils.isPresent(EMBEDDED_BROKER_CONFIG, getClass().getClassLoader())) {
+                    throw new IllegalStateException("gds.app.stompBroker=embedded requires building with -Pembedded-broker");
+                }
+                enableRelay(config, "localhost");
+            }
+            default -> throw new IllegalStateException("Unknown gds.app.stompBroker mode: " + brokerMode);
+        }
+
         config.setApplicationDestinationPrefixes("/app");
     }
 
+    private void enableRelay(MessageBrokerRegistry config, String host) {
+        config.enableStompBrokerRelay("/topic")
+                .setRelayHost(host)
+                .setRelayPort(relayPort)
+                .setClientLogin(relayLogin)
+                .setClientPasscode(relayPasscode)
+                .setSystemLogin(relayLogin)
+                .setSystemPasscode(relayPasscode);
+    }
+
     
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
@@ -26,4 +79,4 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setAllowedOriginPatterns("*")
                 .withSockJS();
     }
-}
\ No newline at end of file
+}
@@ -2,14 +2,19 @@ package org.gds.controller;
 
 import org.gds.model.Audio;
 import org.gds.service.AudioService;
+import org.gds.service.AudioStreamService;
+import org.gds.service.MediaStorageService;
+import org.gds.service.StoredMedia;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -18,7 +23,6 @@ import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/audio")
@@ -26,6 +30,12 @@ public class AudioController {
     @Autowired
     private AudioService audioService;
 
+    @Autowired
+    private AudioStreamService audioStreamService;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
     @Value("${audio.upload.dir:uploads/audio}")
     private String uploadDir;
 
@@ -36,18 +46,15 @@ public class AudioController {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
+        StoredMedia stored;
         try {
-            String originalName = StringUtils.cleanPath(file.getOriginalFilename());
-            String extension = "";
-            int i = originalName.lastIndexOf('.');
-            if (i > 0) extension = originalName.substring(i);
-            String filename = UUID.randomUUID() + extension;
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            Path filePath = uploadPath.resolve(filename);
-            file.transferTo(filePath);
+            stored = mediaStorageService.store(file, uploadDir);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        try {
+            String filename = stored.getFilename();
+            String originalName = stored.getOriginalName();
             String url = "/audio/" + filename;
 
             Audio audio;
@@ -59,8 +66,9 @@ public class AudioController {
 
             Audio saved = audioService.save(audio);
             return ResponseEntity.ok(saved);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (RuntimeException e) {
+            mediaStorageService.release(uploadDir, stored.getFilename());
+            throw e;
         }
     }
 
@@ -76,6 +84,20 @@ public class AudioController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Streams the audio file, honouring Range, If-Range, If-None-Match and If-Modified-Since.
+     */
+    @GetMapping("/{id}/stream")
+    public void streamAudio(@PathVariable Long id, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Optional<Audio> audioOpt = audioService.findById(id);
+        Path filePath = audioOpt.map(audio -> Paths.get(uploadDir).resolve(audio.getFilename())).orElse(null);
+        if (filePath == null || !Files.isRegularFile(filePath)) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        audioStreamService.stream(filePath, request, response);
+    }
+
     @PutMapping("/{id}/title")
     public ResponseEntity<Audio> updateAudioTitle(
             @PathVariable Long id,
@@ -97,7 +119,7 @@ public class AudioController {
     }
 
     @PutMapping("/{id}/position")
-    public ResponseEntity<Audio> updateAudioPosition(
+    public ResponseEntity<Void> updateAudioPosition(
             @PathVariable Long id,
             @RequestBody Map<String, Integer> payload) {
         Integer position = payload.get("position");
@@ -105,15 +127,8 @@ public class AudioController {
             return ResponseEntity.badRequest().build();
         }
 
-        Optional<Audio> audioOpt = audioService.findById(id);
-        if (audioOpt.isPresent()) {
-            Audio audio = audioOpt.get();
-            audio.setLastPosition(position);
-            Audio updated = audioService.save(audio);
-            return ResponseEntity.ok(updated);
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+        audioService.updatePosition(id, position);
+        return ResponseEntity.accepted().build();
     }
 
     @DeleteMapping("/{id}")
@@ -121,11 +136,8 @@ public class AudioController {
         Optional<Audio> audioOpt = audioService.findById(id);
         if (audioOpt.isPresent()) {
             Audio audio = audioOpt.get();
-            Path filePath = Paths.get(uploadDir).resolve(audio.getFilename());
-            try {
-                Files.deleteIfExists(filePath);
-            } catch (IOException ignored) {}
             audioService.deleteById(id);
+            mediaStorageService.release(uploadDir, audio.getFilename());
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
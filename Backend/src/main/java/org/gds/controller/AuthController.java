@@ -16,19 +16,29 @@ import org.gds.repository.RoleRepository;
 import org.gds.repository.UserRepository;
 import org.gds.security.jwt.JwtUtils;
 import org.gds.security.services.RefreshTokenService;
+import org.gds.security.services.TokenVersionService;
+import org.gds.security.services.UserChangedEvent;
 import org.gds.security.services.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.springframework.http.MediaType;
 
@@ -38,6 +48,7 @@ import org.springframework.http.MediaType;
 @RequestMapping("/api/auth")
 public class AuthController {
 
+    private static final String SIGNIN_RETRY_AFTER_SECONDS = "2";
 
     @Autowired
     AuthenticationManager authenticationManager;
@@ -57,13 +68,31 @@ public class AuthController {
     @Autowired
     RefreshTokenService refreshTokenService;
 
+    @Autowired
+    TokenVersionService tokenVersionService;
+
+    @Autowired
+    ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    ThreadPoolTaskExecutor signinExecutor;
+
     
     @PostMapping(value = "/signin", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<?> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+    public CompletableFuture<ResponseEntity<?>> authenticateUser(@Valid @RequestBody LoginRequest loginRequest) {
+        try {
+            return CompletableFuture.supplyAsync(() -> signin(loginRequest), signinExecutor);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, SIGNIN_RETRY_AFTER_SECONDS)
+                    .body(new MessageResponse("Error: Too many sign-in attempts, please retry shortly.")));
+        }
+    }
+
+    private ResponseEntity<?> signin(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(loginRequest.getUsername(), loginRequest.getPassword()));
 
-        SecurityContextHolder.getContext().setAuthentication(authentication);
         UserDetailsImpl userDetails = (UserDetailsImpl) authentication.getPrincipal();
 
         String jwt = jwtUtils.generateJwtToken(authentication);
@@ -88,13 +117,13 @@ public class AuthController {
     
     @PostMapping("/signup")
     public ResponseEntity<?> registerUser(@Valid @RequestBody SignupRequest signUpRequest) {
-        if (userRepository.existsByUsername(signUpRequest.getUsername())) {
+        if (userRepository.existsByUsernameKey(signUpRequest.getUsername().toLowerCase(Locale.ROOT))) {
             return ResponseEntity
                     .badRequest()
                     .body(new MessageResponse("Error: Username is already taken!"));
         }
 
-        if (userRepository.existsByEmail(signUpRequest.getEmail())) {
+        if (userRepository.existsByEmailKey(signUpRequest.getEmail().toLowerCase(Locale.ROOT))) {
             return ResponseEntity
                     .badRequest()
                     .body(new MessageResponse("Error: Email is already in use!"));
@@ -145,10 +174,16 @@ public class AuthController {
 
         return refreshTokenService.findByToken(requestRefreshToken)
                 .map(refreshTokenService::verifyExpiration)
-                .map(RefreshToken::getUser)
-                .map(user -> {
-                    String token = jwtUtils.generateTokenFromUsername(user.getUsername());
-                    return ResponseEntity.ok(new TokenRefreshResponse(token, requestRefreshToken));
+                .<ResponseEntity<?>>map(refreshToken -> {
+                    User user = refreshToken.getUser();
+                    if (user.isBanned()) {
+                        return ResponseEntity
+                                .status(HttpStatus.FORBIDDEN)
+                                .body(new MessageResponse("Error: This account has been banned"));
+                    }
+                    String token = jwtUtils.generateJwtToken(UserDetailsImpl.build(user));
+                    RefreshToken rotatedToken = refreshTokenService.rotate(refreshToken);
+                    return ResponseEntity.ok(new TokenRefreshResponse(token, rotatedToken.getToken()));
                 })
                 .orElseThrow(() -> new RuntimeException("Refresh token is not in database!"));
     }
@@ -173,6 +208,7 @@ public class AuthController {
 
     
     @PutMapping("/profile")
+    @Transactional
     public ResponseEntity<?> updateProfile(@Valid @RequestBody UpdateProfileRequest updateProfileRequest) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
 
@@ -186,24 +222,29 @@ public class AuthController {
         UserDetailsImpl userDetails = (UserDetailsImpl) principal;
         Long userId = userDetails.getId();
 
-        if (!userDetails.getUsername().equals(updateProfileRequest.getUsername()) &&
-            userRepository.existsByUsername(updateProfileRequest.getUsername())) {
+        // Changing only the case of one's own username or email is allowed.
+        if (userRepository.existsByUsernameKeyAndIdNot(
+                updateProfileRequest.getUsername().toLowerCase(Locale.ROOT), userId)) {
             return ResponseEntity
                     .badRequest()
                     .body(new MessageResponse("Error: Username is already taken!"));
         }
 
-        if (!userDetails.getEmail().equals(updateProfileRequest.getEmail()) &&
-            userRepository.existsByEmail(updateProfileRequest.getEmail())) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Error: User not found."));
+
+        if (userRepository.existsByEmailKeyAndIdNot(
+                updateProfileRequest.getEmail().toLowerCase(Locale.ROOT), userId)) {
             return ResponseEntity
                     .badRequest()
                     .body(new MessageResponse("Error: Email is already in use!"));
         }
 
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Error: User not found."));
-
         boolean usernameChanged = !user.getUsername().equals(updateProfileRequest.getUsername());
+        if (usernameChanged) {
+            // Access tokens carry the username as subject, so the old ones must stop working.
+            tokenVersionService.revoke(user);
+        }
 
         user.setUsername(updateProfileRequest.getUsername());
         user.setEmail(updateProfileRequest.getEmail());
@@ -213,9 +254,10 @@ public class AuthController {
         user.setLocation(updateProfileRequest.getLocation());
 
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
 
         if (usernameChanged) {
-            String newToken = jwtUtils.generateTokenFromUsername(user.getUsername());
+            String newToken = jwtUtils.generateJwtToken(UserDetailsImpl.build(user));
 
             RefreshToken refreshToken = refreshTokenService.createRefreshToken(userId);
 
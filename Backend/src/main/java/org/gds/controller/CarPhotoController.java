@@ -2,22 +2,20 @@ package org.gds.controller;
 
 import org.gds.model.CarPhoto;
 import org.gds.service.CarPhotoService;
+import org.gds.service.ImageVariantService;
+import org.gds.service.MediaStorageService;
+import org.gds.service.StoredMedia;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/car-photos")
@@ -25,6 +23,12 @@ public class CarPhotoController {
     @Autowired
     private CarPhotoService carPhotoService;
 
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
     @Value("${car.photo.upload.dir:uploads/cars}")
     private String uploadDir;
 
@@ -36,18 +40,15 @@ public class CarPhotoController {
         if (file.isEmpty()) {
             return ResponseEntity.badRequest().build();
         }
+        StoredMedia stored;
         try {
-            String originalName = StringUtils.cleanPath(file.getOriginalFilename());
-            String extension = "";
-            int i = originalName.lastIndexOf('.');
-            if (i > 0) extension = originalName.substring(i);
-            String filename = UUID.randomUUID() + extension;
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
-            Path filePath = uploadPath.resolve(filename);
-            file.transferTo(filePath);
+            stored = mediaStorageService.store(file, uploadDir);
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        try {
+            String filename = stored.getFilename();
+            String originalName = stored.getOriginalName();
             String url = "/cars/" + filename;
 
             CarPhoto carPhoto;
@@ -62,9 +63,12 @@ public class CarPhotoController {
             }
 
             CarPhoto saved = carPhotoService.save(carPhoto);
+            imageVariantService.submit(uploadDir, filename, (thumbnail, medium) ->
+                    carPhotoService.updateVariantUrls(filename, "/cars/" + thumbnail, "/cars/" + medium));
             return ResponseEntity.ok(saved);
-        } catch (IOException e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        } catch (RuntimeException e) {
+            mediaStorageService.release(uploadDir, stored.getFilename());
+            throw e;
         }
     }
 
@@ -125,11 +129,8 @@ public class CarPhotoController {
         Optional<CarPhoto> carPhotoOpt = carPhotoService.findById(id);
         if (carPhotoOpt.isPresent()) {
             CarPhoto carPhoto = carPhotoOpt.get();
-            Path filePath = Paths.get(uploadDir).resolve(carPhoto.getFilename());
-            try {
-                Files.deleteIfExists(filePath);
-            } catch (IOException ignored) {}
             carPhotoService.deleteById(id);
+            mediaStorageService.release(uploadDir, carPhoto.getFilename());
             return ResponseEntity.noContent().build();
         } else {
             return ResponseEntity.notFound().build();
@@ -1,8 +1,12 @@
 package org.gds.controller;
 
 import org.gds.dto.ChatDTO;
+import org.gds.dto.PresenceSnapshotDTO;
 import org.gds.payload.request.ChatRequest;
+import org.gds.payload.response.MessageResponse;
+import org.gds.security.services.UserDetailsImpl;
 import org.gds.service.ChatService;
+import org.gds.service.PresenceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
@@ -19,9 +23,14 @@ import jakarta.validation.Valid;
 @RequestMapping("/api/chat")
 public class ChatController {
 
+    private static final int MAX_SCROLL_SIZE = 100;
+
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private PresenceService presenceService;
+
 
     @GetMapping("/recent")
     public ResponseEntity<Page<ChatDTO>> getRecentMessages(
@@ -41,13 +50,51 @@ public class ChatController {
     }
 
 
+    /**
+     * Newest messages first; pass the returned nextCursor to scroll back through older ones.
+     */
+    @GetMapping("/recent/scroll")
+    public ResponseEntity<?> getRecentMessagesByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(chatService.getRecentMessagesByCursor(cursor, Math.min(Math.max(size, 1), MAX_SCROLL_SIZE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+
+    @GetMapping("/history/scroll")
+    public ResponseEntity<?> getChatHistoryByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size) {
+        try {
+            return ResponseEntity.ok(chatService.getChatHistoryByCursor(cursor, Math.min(Math.max(size, 1), MAX_SCROLL_SIZE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+
+    /**
+     * Users currently connected to the chat on this node. Apply deltas from the returned topic
+     * whose version is higher than the one returned here. With a shared broker, clients should
+     * subscribe to /app/presence instead, which answers from the node holding their connection.
+     */
+    @GetMapping("/presence")
+    public ResponseEntity<PresenceSnapshotDTO> getPresence() {
+        return ResponseEntity.ok(presenceService.snapshot());
+    }
+
+
     @PostMapping("/send")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ChatDTO> sendMessage(@Valid @RequestBody ChatRequest chatRequest) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
+        UserDetailsImpl sender = (UserDetailsImpl) authentication.getPrincipal();
 
-        ChatDTO messageDTO = chatService.sendMessageDTO(chatRequest.getMessage(), username);
+        ChatDTO messageDTO = chatService.sendMessageDTO(chatRequest.getMessage(), sender);
         return ResponseEntity.ok(messageDTO);
     }
 
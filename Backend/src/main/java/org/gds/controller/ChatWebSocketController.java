@@ -1,14 +1,19 @@
 package org.gds.controller;
 
 import org.gds.dto.ChatDTO;
+import org.gds.dto.PresenceSnapshotDTO;
 import org.gds.model.Chat;
 import org.gds.payload.request.ChatRequest;
+import org.gds.security.services.UserDetailsImpl;
 import org.gds.service.ChatService;
+import org.gds.service.PresenceService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.MessageMapping;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.annotation.SubscribeMapping;
+import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 
 import java.security.Principal;
@@ -20,19 +25,31 @@ public class ChatWebSocketController {
     @Autowired
     private ChatService chatService;
 
+    @Autowired
+    private PresenceService presenceService;
+
     
     @MessageMapping("/chat.sendMessage")
     @SendTo("/topic/public")
     public ChatDTO sendMessage(@Payload ChatRequest chatRequest, Principal principal) {
-        return chatService.sendMessageDTO(chatRequest.getMessage(), principal.getName());
+        // WebSocketAuthenticationConfig authenticates the session with the token's principal.
+        UserDetailsImpl sender = (UserDetailsImpl) ((Authentication) principal).getPrincipal();
+        return chatService.sendMessageDTO(chatRequest.getMessage(), sender);
+    }
+
+    
+    /**
+     * The roster of the node this connection is on, answered directly to the subscriber.
+     */
+    @SubscribeMapping("/presence")
+    public PresenceSnapshotDTO presence() {
+        return presenceService.snapshot();
     }
 
     
     @MessageMapping("/chat.addUser")
-    @SendTo("/topic/public")
-    public ChatDTO addUser(SimpMessageHeaderAccessor headerAccessor, Principal principal) {
+    public void addUser(SimpMessageHeaderAccessor headerAccessor, Principal principal) {
         String username = principal.getName();
         headerAccessor.getSessionAttributes().put("username", username);
-        return chatService.createSystemMessageDTO(username + " joined the chat");
     }
 }
@@ -1,5 +1,7 @@
 package org.gds.controller;
 
+import org.gds.dto.ForumLikeCountsDTO;
+import org.gds.dto.ForumPostSummaryDTO;
 import org.gds.model.ForumComment;
 import org.gds.model.ForumLike;
 import org.gds.model.ForumPost;
@@ -8,7 +10,11 @@ import org.gds.model.User;
 import org.gds.payload.request.CommentRequest;
 import org.gds.payload.request.PostRequest;
 import org.gds.payload.response.MessageResponse;
+import org.gds.security.services.UserDetailsImpl;
 import org.gds.service.ForumService;
+import org.gds.service.ImageVariantService;
+import org.gds.service.MediaStorageService;
+import org.gds.service.StoredMedia;
 import org.gds.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -21,19 +27,14 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.Valid;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -41,15 +42,32 @@ import java.util.UUID;
 @RequestMapping("/api/forum")
 public class ForumController {
 
+    private static final int MAX_LIKE_INFO_BATCH = 100;
+    private static final int MAX_SCROLL_SIZE = 100;
+
     @Autowired
     private ForumService forumService;
 
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private ImageVariantService imageVariantService;
+
     @Value("${forum.photo.upload.dir:uploads/forum}")
     private String uploadDir;
 
+    private Long getCurrentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserDetailsImpl) {
+            return ((UserDetailsImpl) authentication.getPrincipal()).getId();
+        }
+        return null;
+    }
+
     private User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String username = authentication.getName();
@@ -60,7 +78,7 @@ public class ForumController {
 
 
     @GetMapping("/posts")
-    public ResponseEntity<Page<ForumPost>> getAllPosts(
+    public ResponseEntity<Page<ForumPostSummaryDTO>> getAllPosts(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sort,
@@ -70,19 +88,35 @@ public class ForumController {
                 Sort.Direction.ASC : Sort.Direction.DESC;
         Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sort));
 
-        Page<ForumPost> posts = forumService.getAllPosts(pageable);
+        Page<ForumPostSummaryDTO> posts = forumService.getAllPosts(pageable);
         return ResponseEntity.ok(posts);
     }
 
 
+    /**
+     * Newest posts first, without the COUNT query of the paged endpoint. Pass the returned
+     * nextCursor to load the following posts.
+     */
+    @GetMapping("/posts/scroll")
+    public ResponseEntity<?> getPostsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(forumService.getPostsByCursor(cursor, Math.min(Math.max(size, 1), MAX_SCROLL_SIZE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+
     @GetMapping("/posts/category/{category}")
-    public ResponseEntity<Page<ForumPost>> getPostsByCategory(
+    public ResponseEntity<Page<ForumPostSummaryDTO>> getPostsByCategory(
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<ForumPost> posts = forumService.getPostsByCategory(category, pageable);
+        Page<ForumPostSummaryDTO> posts = forumService.getPostsByCategory(category, pageable);
         return ResponseEntity.ok(posts);
     }
 
@@ -164,17 +198,25 @@ public class ForumController {
 
 
     @GetMapping("/posts/search")
-    public ResponseEntity<Page<ForumPost>> searchPosts(
+    public ResponseEntity<Page<ForumPostSummaryDTO>> searchPosts(
             @RequestParam String query,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<ForumPost> posts = forumService.searchPosts(query, pageable);
+        Page<ForumPostSummaryDTO> posts = forumService.searchPosts(query, pageable);
         return ResponseEntity.ok(posts);
     }
 
 
+    @PostMapping("/search/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildSearchIndex() {
+        int indexed = forumService.rebuildSearchIndex();
+        return ResponseEntity.ok(new MessageResponse("Search index rebuilt with " + indexed + " posts"));
+    }
+
+
 
     @GetMapping("/posts/{postId}/comments")
     public ResponseEntity<Page<ForumComment>> getCommentsByPostId(
@@ -193,6 +235,22 @@ public class ForumController {
     }
 
 
+    @GetMapping("/posts/{postId}/comments/scroll")
+    public ResponseEntity<?> getCommentsByCursor(
+            @PathVariable Long postId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        if (!forumService.getPostById(postId).isPresent()) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(forumService.getCommentsByCursor(postId, cursor, Math.min(Math.max(size, 1), MAX_SCROLL_SIZE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+
     @PostMapping("/posts/{postId}/comments")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> createComment(
@@ -311,20 +369,16 @@ public class ForumController {
     @GetMapping("/posts/{postId}/likes")
     public ResponseEntity<?> getLikeInfo(@PathVariable Long postId) {
         try {
-            Long likesCount = forumService.getLikesCount(postId);
-            Long dislikesCount = forumService.getDislikesCount(postId);
-            Long totalLikeCount = forumService.getLikeCount(postId);
+            ForumLikeCountsDTO counts = forumService.getLikeCounts(postId);
 
             Map<String, Object> response = new HashMap<>();
-            response.put("likeCount", totalLikeCount);
-            response.put("likesCount", likesCount);
-            response.put("dislikesCount", dislikesCount);
-
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            if (authentication != null && authentication.isAuthenticated() && 
-                    !authentication.getName().equals("anonymousUser")) {
-                User currentUser = getCurrentUser();
-                Boolean userLikeStatus = forumService.getUserLikeStatus(currentUser, postId);
+            response.put("likeCount", counts.getLikeCount());
+            response.put("likesCount", counts.getLikesCount());
+            response.put("dislikesCount", counts.getDislikesCount());
+
+            Long userId = getCurrentUserId();
+            if (userId != null) {
+                Boolean userLikeStatus = forumService.getUserLikeStatus(userId, postId);
                 response.put("userLikeStatus", userLikeStatus);
             }
 
@@ -335,6 +389,20 @@ public class ForumController {
     }
 
 
+    @GetMapping("/posts/likes")
+    public ResponseEntity<?> getLikeInfoForPosts(@RequestParam List<Long> postIds) {
+        if (postIds.size() > MAX_LIKE_INFO_BATCH) {
+            return ResponseEntity.badRequest()
+                    .body(new MessageResponse("At most " + MAX_LIKE_INFO_BATCH + " posts can be requested at once"));
+        }
+        if (postIds.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+
+        return ResponseEntity.ok(forumService.getLikeCounts(postIds, getCurrentUserId()));
+    }
+
+
     @PostMapping("/posts/{postId}/photos")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<?> uploadPostPhoto(
@@ -357,30 +425,27 @@ public class ForumController {
                                 .body(new MessageResponse("Please select a file to upload"));
                     }
 
+                    StoredMedia stored;
                     try {
-                        String originalName = StringUtils.cleanPath(file.getOriginalFilename());
-                        String extension = "";
-                        int i = originalName.lastIndexOf('.');
-                        if (i > 0) extension = originalName.substring(i);
-                        String filename = UUID.randomUUID() + extension;
-
-                        Path uploadPath = Paths.get(uploadDir);
-                        if (!Files.exists(uploadPath)) {
-                            Files.createDirectories(uploadPath);
-                        }
-
-                        Path filePath = uploadPath.resolve(filename);
-                        file.transferTo(filePath);
+                        stored = mediaStorageService.store(file, uploadDir);
+                    } catch (IOException e) {
+                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                                .body(new MessageResponse("Failed to upload photo: " + e.getMessage()));
+                    }
 
-                        String url = "/forum/" + filename;
+                    try {
+                        String url = "/forum/" + stored.getFilename();
 
-                        ForumPostPhoto photo = new ForumPostPhoto(filename, url, originalName, post);
+                        ForumPostPhoto photo = new ForumPostPhoto(stored.getFilename(), url, stored.getOriginalName(), post);
                         ForumPostPhoto savedPhoto = forumService.savePhoto(photo);
+                        String filename = stored.getFilename();
+                        imageVariantService.submit(uploadDir, filename, (thumbnail, medium) ->
+                                forumService.updatePhotoVariantUrls(filename, "/forum/" + thumbnail, "/forum/" + medium));
 
                         return ResponseEntity.ok(savedPhoto);
-                    } catch (IOException e) {
-                        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                                .body(new MessageResponse("Failed to upload photo: " + e.getMessage()));
+                    } catch (RuntimeException e) {
+                        mediaStorageService.release(uploadDir, stored.getFilename());
+                        throw e;
                     }
                 })
                 .orElse(ResponseEntity.notFound().build());
@@ -409,13 +474,7 @@ public class ForumController {
                                 .body(new MessageResponse("You can only delete photos from your own posts"));
                     }
 
-                    try {
-                        Path filePath = Paths.get(uploadDir).resolve(photo.getFilename());
-                        Files.deleteIfExists(filePath);
-                    } catch (IOException e) {
-                        System.err.println("Error deleting file: " + e.getMessage());
-                    }
-
+                    // The file is released by ForumPhotoCleanupListener once the row is gone.
                     forumService.deletePhoto(photo);
                     return ResponseEntity.ok(new MessageResponse("Photo deleted successfully"));
                 })
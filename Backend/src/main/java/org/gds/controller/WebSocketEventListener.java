@@ -1,17 +1,16 @@
 package org.gds.controller;
 
 import org.gds.model.Chat;
-import org.gds.service.ChatService;
+import org.gds.service.PresenceService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.event.EventListener;
-import org.springframework.messaging.simp.SimpMessageSendingOperations;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import java.util.Map;
+import java.security.Principal;
 
 
 @Component
@@ -20,27 +19,30 @@ public class WebSocketEventListener {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketEventListener.class);
 
     @Autowired
-    private SimpMessageSendingOperations messagingTemplate;
-
-    @Autowired
-    private ChatService chatService;
+    private PresenceService presenceService;
 
 
     @EventListener
     public void handleWebSocketConnectListener(SessionConnectedEvent event) {
-        logger.info("Received a new WebSocket connection");
+        Principal user = event.getUser();
+        String sessionId = (String) event.getMessage().getHeaders().get("simpSessionId");
+
+        if (user != null && sessionId != null) {
+            logger.info("User connected: " + user.getName());
+
+            presenceService.sessionConnected(sessionId, user.getName());
+        } else {
+            logger.info("Received a new WebSocket connection");
+        }
     }
 
 
     @EventListener
     public void handleWebSocketDisconnectListener(SessionDisconnectEvent event) {
-        String username = (String) event.getMessage().getHeaders().get("simpSessionAttributes", Map.class).get("username");
-
-        if (username != null) {
-            logger.info("User disconnected: " + username);
-
-            org.gds.dto.ChatDTO chatDTO = chatService.createSystemMessageDTO(username + " left the chat");
-            messagingTemplate.convertAndSend("/topic/public", chatDTO);
+        if (event.getUser() != null) {
+            logger.info("User disconnected: " + event.getUser().getName());
         }
+
+        presenceService.sessionDisconnected(event.getSessionId());
     }
 }
@@ -0,0 +1,40 @@
+package org.gds.dto;
+
+public class ForumLikeCountsDTO {
+    private Long postId;
+    private long likesCount;
+    private long dislikesCount;
+    private long likeCount;
+    private Boolean userLikeStatus;
+
+    public ForumLikeCountsDTO(Long postId, long likesCount, long dislikesCount, long likeCount) {
+        this.postId = postId;
+        this.likesCount = likesCount;
+        this.dislikesCount = dislikesCount;
+        this.likeCount = likeCount;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public long getLikesCount() {
+        return likesCount;
+    }
+
+    public long getDislikesCount() {
+        return dislikesCount;
+    }
+
+    public long getLikeCount() {
+        return likeCount;
+    }
+
+    public Boolean getUserLikeStatus() {
+        return userLikeStatus;
+    }
+
+    public void setUserLikeStatus(Boolean userLikeStatus) {
+        this.userLikeStatus = userLikeStatus;
+    }
+}
@@ -0,0 +1,78 @@
+package org.gds.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * List-view shape of a forum post. The full content and the photo list are only returned by
+ * GET /api/forum/posts/{id}.
+ */
+public class ForumPostSummaryDTO {
+    public static final int EXCERPT_LENGTH = 300;
+
+    private Long id;
+    private String title;
+    private String excerpt;
+    // Whether the content goes on past the excerpt
+    private boolean truncated;
+    private String category;
+    private Long authorId;
+    private String authorUsername;
+    private LocalDateTime createdAt;
+    private long photoCount;
+    // The first photo's thumbnail once it has been generated, otherwise the original
+    private String firstPhotoUrl;
+
+    public ForumPostSummaryDTO(Long id, String title, String excerpt, Boolean truncated, String category, Long authorId,
+                               String authorUsername, LocalDateTime createdAt, Long photoCount, String firstPhotoUrl) {
+        this.id = id;
+        this.title = title;
+        this.excerpt = excerpt;
+        this.truncated = Boolean.TRUE.equals(truncated);
+        this.category = category;
+        this.authorId = authorId;
+        this.authorUsername = authorUsername;
+        this.createdAt = createdAt;
+        this.photoCount = photoCount == null ? 0 : photoCount;
+        this.firstPhotoUrl = firstPhotoUrl;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getExcerpt() {
+        return excerpt;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public Long getAuthorId() {
+        return authorId;
+    }
+
+    public String getAuthorUsername() {
+        return authorUsername;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public long getPhotoCount() {
+        return photoCount;
+    }
+
+    public String getFirstPhotoUrl() {
+        return firstPhotoUrl;
+    }
+}
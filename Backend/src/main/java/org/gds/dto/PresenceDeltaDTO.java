@@ -0,0 +1,27 @@
+package org.gds.dto;
+
+import java.util.List;
+
+public class PresenceDeltaDTO {
+    private long version;
+    private List<String> online;
+    private List<String> offline;
+
+    public PresenceDeltaDTO(long version, List<String> online, List<String> offline) {
+        this.version = version;
+        this.online = online;
+        this.offline = offline;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> getOnline() {
+        return online;
+    }
+
+    public List<String> getOffline() {
+        return offline;
+    }
+}
@@ -0,0 +1,30 @@
+package org.gds.dto;
+
+import java.util.List;
+
+public class PresenceSnapshotDTO {
+    private String topic;
+    private long version;
+    private List<String> users;
+
+    public PresenceSnapshotDTO(String topic, long version, List<String> users) {
+        this.topic = topic;
+        this.version = version;
+        this.users = users;
+    }
+
+    /**
+     * The destination the deltas for this roster are published on.
+     */
+    public String getTopic() {
+        return topic;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<String> getUsers() {
+        return users;
+    }
+}
@@ -10,6 +10,8 @@ public class CarPhoto {
 
     private String filename;
     private String url;
+    private String thumbnailUrl;
+    private String mediumUrl;
     private String originalName;
     private String title;
     private String description;
@@ -50,6 +52,13 @@ public class CarPhoto {
     public String getUrl() { return url; }
     public void setUrl(String url) { this.url = url; }
 
+    // Scaled-down variants, filled in by ImageVariantService after upload; null until then.
+    public String getThumbnailUrl() { return thumbnailUrl; }
+    public void setThumbnailUrl(String thumbnailUrl) { this.thumbnailUrl = thumbnailUrl; }
+
+    public String getMediumUrl() { return mediumUrl; }
+    public void setMediumUrl(String mediumUrl) { this.mediumUrl = mediumUrl; }
+
     public String getOriginalName() { return originalName; }
     public void setOriginalName(String originalName) { this.originalName = originalName; }
 
@@ -5,10 +5,15 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "chats")
+@Table(name = "chats", indexes = {
+        @Index(name = "idx_chats_timestamp_id", columnList = "timestamp, id")
+})
 public class Chat {
+    // Drawn one at a time from a sequence shared by all nodes, so that ids follow send order,
+    // which history, paging and trimming rely on. ChatWriteBehindQueue draws from it as well.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "chats_seq")
+    @SequenceGenerator(name = "chats_seq", sequenceName = "chats_seq", allocationSize = 1)
     private Long id;
 
     @Column(nullable = false, length = 1000)
@@ -0,0 +1,45 @@
+package org.gds.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+
+/**
+ * A chat message that was broadcast but could not be written to the chats table, kept for
+ * inspection instead of being lost.
+ */
+@Entity
+@Table(name = "chat_dead_letters")
+public class ChatDeadLetter {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long messageId;
+
+    @Column(nullable = false, length = 1000)
+    private String message;
+
+    @Column(nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private LocalDateTime timestamp;
+
+    @Column(length = 1000)
+    private String error;
+
+    @Column(nullable = false)
+    private LocalDateTime failedAt;
+
+    public ChatDeadLetter() {}
+
+    public Long getId() { return id; }
+    public Long getMessageId() { return messageId; }
+    public String getMessage() { return message; }
+    public Long getUserId() { return userId; }
+    public LocalDateTime getTimestamp() { return timestamp; }
+    public String getError() { return error; }
+    public LocalDateTime getFailedAt() { return failedAt; }
+}
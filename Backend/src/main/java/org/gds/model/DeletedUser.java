@@ -0,0 +1,32 @@
+package org.gds.model;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+
+
+/**
+ * Records that a user was deleted, so that access tokens issued to the user are still rejected
+ * after a restart or on another node, once the user row itself is gone. A record is only
+ * needed until the last of those tokens has expired.
+ */
+@Entity
+@Table(name = "deleted_users", indexes = {
+        @Index(name = "idx_deleted_users_deleted_at", columnList = "deletedAt")
+})
+public class DeletedUser {
+    @Id
+    private Long userId;
+
+    @Column(nullable = false)
+    private Instant deletedAt;
+
+    public DeletedUser() {}
+
+    public DeletedUser(Long userId) {
+        this.userId = userId;
+        this.deletedAt = Instant.now();
+    }
+
+    public Long getUserId() { return userId; }
+    public Instant getDeletedAt() { return deletedAt; }
+}
@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "forum_comments")
+@Table(name = "forum_comments", indexes = {
+        @Index(name = "idx_forum_comments_post_created_at_id", columnList = "post_id, createdAt, id")
+})
 public class ForumComment {
 
     @Id
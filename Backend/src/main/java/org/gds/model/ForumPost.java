@@ -3,6 +3,7 @@ package org.gds.model;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
+import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -10,7 +11,9 @@ import com.fasterxml.jackson.annotation.JsonManagedReference;
 
 
 @Entity
-@Table(name = "forum_posts")
+@Table(name = "forum_posts", indexes = {
+        @Index(name = "idx_forum_posts_created_at_id", columnList = "createdAt, id")
+})
 public class ForumPost {
 
     @Id
@@ -33,10 +36,24 @@ public class ForumPost {
     @Size(max = 50)
     private String category;
 
-    @OneToMany(mappedBy = "post", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Not cascaded: photos are removed through ForumService, which also releases their files.
+    @OneToMany(mappedBy = "post")
     @JsonManagedReference
     private List<ForumPostPhoto> photos = new ArrayList<>();
 
+    // Maintained by ForumService through atomic UPDATE statements, never through entity saves.
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long likesCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long dislikesCount;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, insertable = false, updatable = false)
+    private long likeScore;
+
     private LocalDateTime createdAt;
 
     private LocalDateTime updatedAt;
@@ -97,6 +114,18 @@ public class ForumPost {
         this.category = category;
     }
 
+    public long getLikesCount() {
+        return likesCount;
+    }
+
+    public long getDislikesCount() {
+        return dislikesCount;
+    }
+
+    public long getLikeScore() {
+        return likeScore;
+    }
+
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -4,17 +4,25 @@ import jakarta.persistence.*;
 import java.time.Instant;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_tokens_user_id", columnList = "user_id"),
+        @Index(name = "idx_refresh_tokens_expiry_date", columnList = "expiryDate")
+})
 public class RefreshToken {
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     private long id;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", referencedColumnName = "id")
     private User user;
 
-    @Column(nullable = false, unique = true)
+    // Only the SHA-256 hash of the token is stored; the column keeps its original name.
+    @Column(name = "token", nullable = false, unique = true)
+    private String tokenHash;
+
+    // The raw token is only known right after creation, when it is handed to the client.
+    @Transient
     private String token;
 
     @Column(nullable = false)
@@ -39,6 +47,14 @@ public class RefreshToken {
         this.user = user;
     }
 
+    public String getTokenHash() {
+        return tokenHash;
+    }
+
+    public void setTokenHash(String tokenHash) {
+        this.tokenHash = tokenHash;
+    }
+
     public String getToken() {
         return token;
     }
@@ -54,4 +70,4 @@ public class RefreshToken {
     public void setExpiryDate(Instant expiryDate) {
         this.expiryDate = expiryDate;
     }
-} 
\ No newline at end of file
+}
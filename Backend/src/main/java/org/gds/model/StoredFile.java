@@ -0,0 +1,62 @@
+package org.gds.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+
+/**
+ * A file in the content-addressed upload store, named after the SHA-256 of its content, and
+ * the number of rows (audio, car photos, forum photos) that reference it.
+ */
+@Entity
+@Table(name = "stored_files", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stored_files_directory_filename", columnNames = {"directory", "filename"})
+})
+public class StoredFile {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String directory;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private long size;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    public StoredFile() {}
+
+    public StoredFile(String directory, String filename, String contentHash, long size) {
+        this.directory = directory;
+        this.filename = filename;
+        this.contentHash = contentHash;
+        this.size = size;
+        this.refCount = 1;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+
+    public String getDirectory() { return directory; }
+
+    public String getFilename() { return filename; }
+
+    public String getContentHash() { return contentHash; }
+
+    public long getSize() { return size; }
+
+    public int getRefCount() { return refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+}
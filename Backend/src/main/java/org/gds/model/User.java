@@ -6,6 +6,7 @@ import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -15,6 +16,9 @@ import java.util.Set;
 @Table(name = "users", uniqueConstraints = {
         @UniqueConstraint(columnNames = "username"),
         @UniqueConstraint(columnNames = "email")
+}, indexes = {
+        @Index(name = "idx_users_username_key", columnList = "username_key"),
+        @Index(name = "idx_users_email_key", columnList = "email_key")
 })
 public class User {
 
@@ -51,8 +55,27 @@ public class User {
     @Size(max = 100)
     private String location;
 
+    // Lower-cased copies maintained by the database, so case-insensitive logins are an index seek.
+    @Column(name = "username_key", insertable = false, updatable = false,
+            columnDefinition = "varchar(50) generated always as (lower(username))")
+    @JsonIgnore
+    private String usernameKey;
+
+    @Column(name = "email_key", insertable = false, updatable = false,
+            columnDefinition = "varchar(50) generated always as (lower(email))")
+    @JsonIgnore
+    private String emailKey;
+
     private boolean banned = false;
 
+    @Column(nullable = false, columnDefinition = "integer default 0")
+    @JsonIgnore
+    private int tokenVersion = 0;
+
+    // When tokenVersion was last raised; older access tokens have all expired jwtExpirationMs later.
+    @JsonIgnore
+    private Instant tokenRevokedAt;
+
     @ManyToMany(fetch = FetchType.LAZY)
     @JoinTable(name = "user_roles",
             joinColumns = @JoinColumn(name = "user_id"),
@@ -90,6 +113,8 @@ public class User {
     public String getLocation() { return location; }
     public Set<Role> getRoles() { return roles; }
     public boolean isBanned() { return banned; }
+    public int getTokenVersion() { return tokenVersion; }
+    public Instant getTokenRevokedAt() { return tokenRevokedAt; }
 
     public void setUsername(String username) { this.username = username; }
     public void setEmail(String email) { this.email = email; }
@@ -100,6 +125,8 @@ public class User {
     public void setLocation(String location) { this.location = location; }
     public void setRoles(Set<Role> roles) { this.roles = roles; }
     public void setBanned(boolean banned) { this.banned = banned; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
+    public void setTokenRevokedAt(Instant tokenRevokedAt) { this.tokenRevokedAt = tokenRevokedAt; }
 
     public List<Car> getCars() { return cars; }
     public void setCars(List<Car> cars) { this.cars = cars; }
@@ -2,8 +2,19 @@ package org.gds.repository;
 
 import org.gds.model.CarPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface CarPhotoRepository extends JpaRepository<CarPhoto, Long> {
-}
\ No newline at end of file
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE CarPhoto p SET p.thumbnailUrl = :thumbnailUrl, p.mediumUrl = :mediumUrl WHERE p.filename = :filename")
+    int updateVariantUrls(@Param("filename") String filename,
+                          @Param("thumbnailUrl") String thumbnailUrl,
+                          @Param("mediumUrl") String mediumUrl);
+}
@@ -1,10 +1,17 @@
 package org.gds.repository;
 
+import org.gds.dto.ChatDTO;
 import org.gds.model.Chat;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 
 @Repository
@@ -14,4 +21,23 @@ public interface ChatRepository extends JpaRepository<Chat, Long> {
     
     
     Page<Chat> findAllByOrderByTimestampAsc(Pageable pageable);
-}
\ No newline at end of file
+
+
+    @Query("SELECT c.id FROM Chat c ORDER BY c.id DESC")
+    List<Long> findIdsNewestFirst(Pageable pageable);
+
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Chat c WHERE c.id < :id")
+    int deleteOlderThanId(@Param("id") Long id);
+
+
+    @Query("SELECT COALESCE(MAX(c.id), 0) FROM Chat c")
+    long findMaxId();
+
+
+    @Query("SELECT new org.gds.dto.ChatDTO(c.id, c.message, s.username, c.timestamp) " +
+           "FROM Chat c JOIN c.sender s ORDER BY c.id DESC")
+    List<ChatDTO> findNewestDTOs(Pageable pageable);
+}
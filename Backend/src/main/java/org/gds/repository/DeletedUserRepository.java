@@ -0,0 +1,24 @@
+package org.gds.repository;
+
+import org.gds.model.DeletedUser;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+@Repository
+public interface DeletedUserRepository extends JpaRepository<DeletedUser, Long> {
+
+    @Query("SELECT d.userId, d.deletedAt FROM DeletedUser d")
+    List<Object[]> findAllDeletions();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DeletedUser d WHERE d.deletedAt < :cutoff")
+    int deleteByDeletedAtBefore(@Param("cutoff") Instant cutoff);
+}
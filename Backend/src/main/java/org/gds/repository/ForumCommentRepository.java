@@ -6,8 +6,12 @@ import org.gds.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 
@@ -25,4 +29,26 @@ public interface ForumCommentRepository extends JpaRepository<ForumComment, Long
     
     
     long countByPost(ForumPost post);
-}
\ No newline at end of file
+
+
+    @Query("SELECT c FROM ForumComment c WHERE c.post.id = :postId ORDER BY c.createdAt ASC, c.id ASC")
+    List<ForumComment> findOldestByPostId(@Param("postId") Long postId, Pageable pageable);
+
+
+    @Query("SELECT c FROM ForumComment c WHERE c.post.id = :postId " +
+           "AND (c.createdAt > :createdAt OR (c.createdAt = :createdAt AND c.id > :id)) " +
+           "ORDER BY c.createdAt ASC, c.id ASC")
+    List<ForumComment> findNewerThanByPostId(@Param("postId") Long postId,
+                                             @Param("createdAt") LocalDateTime createdAt,
+                                             @Param("id") Long id,
+                                             Pageable pageable);
+
+
+    @Modifying
+    @Query("DELETE FROM ForumComment c WHERE c.post.id = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    @Modifying
+    @Query("DELETE FROM ForumComment c WHERE c.author.id = :authorId")
+    int deleteByAuthorId(@Param("authorId") Long authorId);
+}
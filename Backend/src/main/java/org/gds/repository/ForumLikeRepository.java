@@ -5,9 +5,12 @@ import org.gds.model.ForumLike;
 import org.gds.model.ForumPost;
 import org.gds.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -16,15 +19,24 @@ public interface ForumLikeRepository extends JpaRepository<ForumLike, Long> {
 
     Optional<ForumLike> findByUserAndPost(User user, ForumPost post);
 
+    Optional<ForumLike> findByUserIdAndPostId(Long userId, Long postId);
 
-    @Query("SELECT COUNT(f) FROM ForumLike f WHERE f.post = :post AND f.isLike = :isLike")
-    long countByPostAndIsLike(@Param("post") ForumPost post, @Param("isLike") boolean isLike);
+    @Query("SELECT l.post.id, l.isLike FROM ForumLike l WHERE l.user.id = :userId AND l.post.id IN :postIds")
+    List<Object[]> findLikeStatuses(@Param("userId") Long userId, @Param("postIds") Collection<Long> postIds);
 
     boolean existsByUserAndPost(User user, ForumPost post);
 
     void deleteByUserAndPost(User user, ForumPost post);
 
-    @Query("SELECT SUM(CASE WHEN l.isLike = true THEN 1 ELSE -1 END) FROM ForumLike l WHERE l.post = ?1")
-    Long getTotalLikeCount(ForumPost post);
-}
 
+    @Modifying
+    @Query("DELETE FROM ForumLike l WHERE l.post.id = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    @Query("SELECT l.post.id FROM ForumLike l WHERE l.user.id = :userId")
+    List<Long> findPostIdsByUserId(@Param("userId") Long userId);
+
+    @Modifying
+    @Query("DELETE FROM ForumLike l WHERE l.user.id = :userId")
+    int deleteByUserId(@Param("userId") Long userId);
+}
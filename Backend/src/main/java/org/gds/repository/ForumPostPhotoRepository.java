@@ -3,7 +3,11 @@ package org.gds.repository;
 import org.gds.model.ForumPost;
 import org.gds.model.ForumPostPhoto;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -11,6 +15,26 @@ import java.util.List;
 public interface ForumPostPhotoRepository extends JpaRepository<ForumPostPhoto, Long> {
     
     List<ForumPostPhoto> findByPost(ForumPost post);
+
+    List<ForumPostPhoto> findByPostId(Long postId);
     
     void deleteByPost(ForumPost post);
-}
\ No newline at end of file
+
+
+    @Query("SELECT p.filename FROM ForumPostPhoto p WHERE p.post.id = :postId")
+    List<String> findFilenamesByPostId(@Param("postId") Long postId);
+
+    @Modifying
+    @Query("DELETE FROM ForumPostPhoto p WHERE p.post.id = :postId")
+    int deleteByPostId(@Param("postId") Long postId);
+
+    @Query("SELECT DISTINCT p.post.id FROM ForumPostPhoto p WHERE p.filename = :filename")
+    List<Long> findPostIdsByFilename(@Param("filename") String filename);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE ForumPostPhoto p SET p.thumbnailUrl = :thumbnailUrl, p.mediumUrl = :mediumUrl WHERE p.filename = :filename")
+    int updateVariantUrls(@Param("filename") String filename,
+                          @Param("thumbnailUrl") String thumbnailUrl,
+                          @Param("mediumUrl") String mediumUrl);
+}
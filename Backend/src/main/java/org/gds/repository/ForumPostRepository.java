@@ -1,18 +1,37 @@
 package org.gds.repository;
 
+import org.gds.dto.ForumLikeCountsDTO;
+import org.gds.dto.ForumPostSummaryDTO;
 import org.gds.model.ForumPost;
 import org.gds.model.User;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 
 @Repository
 public interface ForumPostRepository extends JpaRepository<ForumPost, Long> {
-    
+
+    // Everything a list view needs in one row per post: the author is joined and the photo
+    // count and first photo come from correlated subqueries, so no follow-up selects are issued.
+    String SUMMARY_SELECT = "SELECT new org.gds.dto.ForumPostSummaryDTO(p.id, p.title, " +
+            "SUBSTRING(p.content, 1, " + ForumPostSummaryDTO.EXCERPT_LENGTH + "), " +
+            "CASE WHEN LENGTH(p.content) > " + ForumPostSummaryDTO.EXCERPT_LENGTH + " THEN true ELSE false END, " +
+            "p.category, a.id, a.username, p.createdAt, " +
+            "(SELECT COUNT(ph) FROM ForumPostPhoto ph WHERE ph.post = p), " +
+            "(SELECT COALESCE(ph.thumbnailUrl, ph.url) FROM ForumPostPhoto ph WHERE ph.id = " +
+            "(SELECT MIN(ph2.id) FROM ForumPostPhoto ph2 WHERE ph2.post = p))) " +
+            "FROM ForumPost p JOIN p.author a ";
 
     List<ForumPost> findByCategory(String category);
     
@@ -26,6 +45,87 @@ public interface ForumPostRepository extends JpaRepository<ForumPost, Long> {
     Page<ForumPost> findAll(Pageable pageable);
     
 
-    Page<ForumPost> findByTitleContainingIgnoreCaseOrContentContainingIgnoreCase(
-            String text, String textRepeat, Pageable pageable);
-}
\ No newline at end of file
+    @Query(value = SUMMARY_SELECT, countQuery = "SELECT COUNT(p) FROM ForumPost p")
+    Page<ForumPostSummaryDTO> findSummaries(Pageable pageable);
+
+
+    @Query(value = SUMMARY_SELECT + "WHERE p.category = :category",
+           countQuery = "SELECT COUNT(p) FROM ForumPost p WHERE p.category = :category")
+    Page<ForumPostSummaryDTO> findSummariesByCategory(@Param("category") String category, Pageable pageable);
+
+
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :postIds")
+    List<ForumPostSummaryDTO> findSummariesByIds(@Param("postIds") Collection<Long> postIds);
+
+
+    @Query(SUMMARY_SELECT + "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ForumPostSummaryDTO> findNewestSummaries(Pageable pageable);
+
+
+    @Query(SUMMARY_SELECT +
+           "WHERE p.createdAt < :createdAt OR (p.createdAt = :createdAt AND p.id < :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<ForumPostSummaryDTO> findSummariesOlderThan(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id,
+                                                     Pageable pageable);
+
+
+    @Query("SELECT DISTINCT p FROM ForumPost p LEFT JOIN FETCH p.photos WHERE p.id = :postId")
+    Optional<ForumPost> findDetailById(@Param("postId") Long postId);
+
+
+    /**
+     * Posts with an id above lastId, in id order. Paging by key rather than offset means a post
+     * deleted between two calls cannot shift an unchanged one out of the next batch.
+     */
+    @Query("SELECT p.id, p.title, p.content FROM ForumPost p WHERE p.id > :lastId ORDER BY p.id")
+    List<Object[]> findSearchRows(@Param("lastId") Long lastId, Limit limit);
+
+
+    @Query("SELECT new org.gds.dto.ForumLikeCountsDTO(p.id, p.likesCount, p.dislikesCount, p.likeScore) " +
+           "FROM ForumPost p WHERE p.id = :postId")
+    Optional<ForumLikeCountsDTO> findLikeCounts(@Param("postId") Long postId);
+
+
+    @Query("SELECT new org.gds.dto.ForumLikeCountsDTO(p.id, p.likesCount, p.dislikesCount, p.likeScore) " +
+           "FROM ForumPost p WHERE p.id IN :postIds")
+    List<ForumLikeCountsDTO> findLikeCountsByIds(@Param("postIds") Collection<Long> postIds);
+
+
+    @Modifying
+    @Query("UPDATE ForumPost p SET p.likesCount = p.likesCount + :likes, " +
+           "p.dislikesCount = p.dislikesCount + :dislikes, " +
+           "p.likeScore = p.likeScore + :likes - :dislikes WHERE p.id = :postId")
+    int adjustLikeCounters(@Param("postId") Long postId, @Param("likes") long likes, @Param("dislikes") long dislikes);
+
+
+    @Modifying
+    @Query("UPDATE ForumPost p SET " +
+           "p.likesCount = (SELECT COUNT(l) FROM ForumLike l WHERE l.post = p AND l.isLike = true), " +
+           "p.dislikesCount = (SELECT COUNT(l) FROM ForumLike l WHERE l.post = p AND l.isLike = false)")
+    int recountLikeCounters();
+
+
+    @Modifying
+    @Query("UPDATE ForumPost p SET p.likeScore = p.likesCount - p.dislikesCount")
+    int recomputeLikeScores();
+
+
+    @Query("SELECT p.id FROM ForumPost p WHERE p.author.id = :authorId")
+    List<Long> findIdsByAuthorId(@Param("authorId") Long authorId);
+
+
+    // Takes back the likes and dislikes a user gave, before they are deleted.
+    @Modifying
+    @Query("UPDATE ForumPost p SET " +
+           "p.likesCount = p.likesCount - (SELECT COUNT(l) FROM ForumLike l WHERE l.post = p AND l.user.id = :userId AND l.isLike = true), " +
+           "p.dislikesCount = p.dislikesCount - (SELECT COUNT(l) FROM ForumLike l WHERE l.post = p AND l.user.id = :userId AND l.isLike = false), " +
+           "p.likeScore = p.likeScore - (SELECT COUNT(l) FROM ForumLike l WHERE l.post = p AND l.user.id = :userId AND l.isLike = true) " +
+           "+ (SELECT COUNT(l) FROM ForumLike l WHERE l.post = p AND l.user.id = :userId AND l.isLike = false) " +
+           "WHERE p.id IN (SELECT l.post.id FROM ForumLike l WHERE l.user.id = :userId)")
+    int subtractLikesOf(@Param("userId") Long userId);
+
+
+    @Modifying
+    @Query("DELETE FROM ForumPost p WHERE p.id = :postId")
+    int deleteByIdInBulk(@Param("postId") Long postId);
+}
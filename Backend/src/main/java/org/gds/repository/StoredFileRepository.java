@@ -0,0 +1,32 @@
+package org.gds.repository;
+
+import jakarta.persistence.LockModeType;
+import org.gds.model.StoredFile;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
+
+    /**
+     * Reads the row with a write lock held until the surrounding transaction ends, so that every
+     * node storing or releasing the same file takes its turn.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM StoredFile f WHERE f.directory = :directory AND f.filename = :filename")
+    Optional<StoredFile> findForUpdate(@Param("directory") String directory, @Param("filename") String filename);
+
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE StoredFile f SET f.refCount = f.refCount + :delta WHERE f.id = :id")
+    int adjustRefCount(@Param("id") Long id, @Param("delta") int delta);
+
+}
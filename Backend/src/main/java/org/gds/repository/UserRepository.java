@@ -2,8 +2,14 @@ package org.gds.repository;
 
 import org.gds.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -14,7 +20,30 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     Optional<User> findByEmail(String email); // ← Adaugă asta
 
+    /**
+     * Resolves a login identifier against both username and email, ignoring case, and
+     * fetches the roles in the same query. Expects the identifier already lower-cased.
+     */
+    @Query("SELECT DISTINCT u FROM User u LEFT JOIN FETCH u.roles " +
+           "WHERE u.usernameKey = :identifier OR u.emailKey = :identifier")
+    List<User> findByLoginIdentifierWithRoles(@Param("identifier") String identifier);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE User u SET u.password = :password WHERE u.id = :id")
+    int updatePassword(@Param("id") Long id, @Param("password") String password);
+
     Boolean existsByUsername(String username);
 
-    Boolean existsByEmail(String email);
+    // Uniqueness ignores case, like logins do. Pass the value already lower-cased.
+    Boolean existsByUsernameKey(String usernameKey);
+
+    Boolean existsByEmailKey(String emailKey);
+
+    Boolean existsByUsernameKeyAndIdNot(String usernameKey, Long id);
+
+    Boolean existsByEmailKeyAndIdNot(String emailKey, Long id);
+
+    @Query("SELECT u.id, u.tokenVersion, u.tokenRevokedAt FROM User u WHERE u.tokenRevokedAt > :since")
+    List<Object[]> findTokenVersionsRevokedSince(@Param("since") Instant since);
 }
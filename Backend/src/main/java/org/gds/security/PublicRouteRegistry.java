@@ -0,0 +1,91 @@
+package org.gds.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.RequestMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes that never need an authenticated user. They are permitted by the security chain and
+ * skipped by AuthTokenFilter, so requests to them never have their token parsed.
+ * <p>
+ * Patterns are either exact paths or a path ending in "/**", and are compiled at startup into a
+ * trie over path segments so that a lookup is a single walk of the request path.
+ */
+@Component
+public class PublicRouteRegistry implements RequestMatcher {
+
+    public static final List<String> PUBLIC_ROUTES = List.of(
+            "/api/auth/signin",
+            "/api/auth/signup",
+            "/api/auth/refresh-token",
+            "/api/test/**",
+            "/error",
+            "/favicon.ico",
+            "/h2-console/**",
+            "/ws/**",
+            "/uploads/**",
+            "/cars/**",
+            "/forum/**",
+            "/audio/**"
+    );
+
+    private final Node root = new Node();
+
+    public PublicRouteRegistry() {
+        PUBLIC_ROUTES.forEach(this::register);
+    }
+
+    private void register(String pattern) {
+        boolean prefix = pattern.endsWith("/**");
+        String path = prefix ? pattern.substring(0, pattern.length() - 3) : pattern;
+
+        Node node = root;
+        for (String segment : path.substring(1).split("/")) {
+            node = node.children.computeIfAbsent(segment, key -> new Node());
+        }
+        if (prefix) {
+            node.prefix = true;
+        } else {
+            node.exact = true;
+        }
+    }
+
+    @Override
+    public boolean matches(HttpServletRequest request) {
+        return isPublic(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    public boolean isPublic(String path) {
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return false;
+        }
+
+        Node node = root;
+        int start = 1;
+        while (true) {
+            if (node.prefix) {
+                return true;
+            }
+            int end = path.indexOf('/', start);
+            String segment = end < 0 ? path.substring(start) : path.substring(start, end);
+            node = node.children.get(segment);
+            if (node == null) {
+                return false;
+            }
+            if (end < 0) {
+                return node.exact || node.prefix;
+            }
+            start = end + 1;
+        }
+    }
+
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private boolean exact;
+        private boolean prefix;
+    }
+}
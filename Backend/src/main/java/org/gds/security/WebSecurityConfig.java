@@ -3,7 +3,11 @@ package org.gds.security;
 import org.gds.security.jwt.AuthEntryPointJwt;
 import org.gds.security.jwt.AuthTokenFilter;
 import org.gds.security.services.UserDetailsServiceImpl;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -25,6 +29,18 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 @EnableMethodSecurity
 public class WebSecurityConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(WebSecurityConfig.class);
+
+    // BCrypt's default; calibration never goes below it so existing hashes are not weakened.
+    private static final int MIN_PASSWORD_STRENGTH = 10;
+    private static final int MAX_PASSWORD_STRENGTH = 14;
+
+    @Value("${gds.app.passwordStrength}")
+    private int passwordStrength;
+
+    @Value("${gds.app.passwordHashBudgetMs}")
+    private long passwordHashBudgetMs;
+
     @Autowired
     private UserDetailsServiceImpl userDetailsService;
 
@@ -34,12 +50,17 @@ public class WebSecurityConfig {
     @Autowired
     private AuthTokenFilter authTokenFilter;
 
+    @Autowired
+    private PublicRouteRegistry publicRouteRegistry;
+
 
     @Bean
     public DaoAuthenticationProvider authenticationProvider() {
         DaoAuthenticationProvider authProvider = new DaoAuthenticationProvider();
         authProvider.setUserDetailsService(userDetailsService);
         authProvider.setPasswordEncoder(passwordEncoder());
+        // Re-hashes passwords stored with a lower work factor on the next successful login.
+        authProvider.setUserDetailsPasswordService(userDetailsService);
         return authProvider;
     }
 
@@ -52,7 +73,39 @@ public class WebSecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        int strength = passwordStrength > 0 ? passwordStrength : calibratePasswordStrength();
+        logger.info("Using BCrypt work factor {}", strength);
+        return new BCryptPasswordEncoder(strength);
+    }
+
+    /**
+     * Picks the highest work factor whose measured hash time stays within the latency budget.
+     * Each step doubles the cost, so the next factor is only taken if twice the current time fits.
+     */
+    private int calibratePasswordStrength() {
+        int strength = MIN_PASSWORD_STRENGTH;
+        long elapsedMs = measureHashMillis(strength);
+        while (strength < MAX_PASSWORD_STRENGTH && elapsedMs * 2 <= passwordHashBudgetMs) {
+            strength++;
+            elapsedMs = measureHashMillis(strength);
+        }
+        return strength;
+    }
+
+    private long measureHashMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode("calibration");
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+
+
+    // AuthTokenFilter only belongs in the security chain; keep Boot from also registering it as a servlet filter.
+    @Bean
+    public FilterRegistrationBean<AuthTokenFilter> authTokenFilterRegistration() {
+        FilterRegistrationBean<AuthTokenFilter> registration = new FilterRegistrationBean<>(authTokenFilter);
+        registration.setEnabled(false);
+        return registration;
     }
 
 
@@ -64,31 +117,24 @@ public class WebSecurityConfig {
                 .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
                 .authorizeRequests()
+                    .requestMatchers(publicRouteRegistry).permitAll()
                     .requestMatchers(HttpMethod.GET, "/api/car-photos/**").permitAll()  // Allow viewing car photos
                     .requestMatchers(HttpMethod.GET, "/api/audio/**").permitAll()  // Allow viewing audio
+                    .requestMatchers(HttpMethod.HEAD, "/api/audio/*/stream").permitAll()  // Allow players to probe audio streams
                     .requestMatchers(HttpMethod.POST, "/api/car-photos/**").hasRole("ADMIN")  // Restrict adding car photos to admins
                     .requestMatchers(HttpMethod.PUT, "/api/car-photos/**").hasRole("ADMIN")   // Restrict editing car photos to admins
                     .requestMatchers(HttpMethod.DELETE, "/api/car-photos/**").hasRole("ADMIN") // Restrict deleting car photos to admins
                     .requestMatchers(HttpMethod.POST, "/api/audio/**").hasRole("ADMIN")  // Restrict adding audio to admins
                     .requestMatchers(HttpMethod.PUT, "/api/audio/**").hasRole("ADMIN")   // Restrict editing audio to admins
                     .requestMatchers(HttpMethod.DELETE, "/api/audio/**").hasRole("ADMIN") // Restrict deleting audio to admins
-                    .requestMatchers("/api/auth/signin").permitAll()
-                    .requestMatchers("/api/auth/signup").permitAll()
-                    .requestMatchers("/api/auth/refresh-token").permitAll()
-                    .requestMatchers("/error").permitAll()
-                    .requestMatchers("/api/test/**").permitAll()
-                    .requestMatchers("/forum/**").permitAll()
                     .requestMatchers("/api/forum/posts").permitAll()
                     .requestMatchers("/api/forum/posts/category/**").permitAll()
+                    .requestMatchers("/api/forum/posts/scroll").permitAll()
                     .requestMatchers("/api/forum/posts/*/comments").permitAll()
+                    .requestMatchers("/api/forum/posts/*/comments/scroll").permitAll()
                     .requestMatchers("/api/forum/posts/*/photos").permitAll()
                     .requestMatchers("/api/forum/posts/*/likes").permitAll()
-                    .requestMatchers("/h2-console/**").permitAll()
-                    .requestMatchers("/favicon.ico").permitAll()
-                    .requestMatchers("/ws/**").permitAll()
-                    .requestMatchers("/cars/**").permitAll()
-                    .requestMatchers("/uploads/**").permitAll()
-                    .requestMatchers("/audio/**").permitAll()
+                    .requestMatchers("/api/forum/posts/likes").permitAll()
                     .requestMatchers("/api/tuning/**").authenticated()
                     .anyRequest().authenticated();
 
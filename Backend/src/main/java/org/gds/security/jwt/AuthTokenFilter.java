@@ -1,60 +1,79 @@
 package org.gds.security.jwt;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.gds.security.services.UserDetailsServiceImpl;
+import org.gds.security.PublicRouteRegistry;
+import org.gds.security.services.TokenVersionService;
+import org.gds.security.services.UserDetailsImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.Optional;
 
 
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
 
     private final JwtUtils jwtUtils;
-    private final UserDetailsServiceImpl userDetailsService;
+    private final TokenVersionService tokenVersionService;
+    private final PublicRouteRegistry publicRouteRegistry;
+    private final Counter bypassedRequests;
+    private final Counter authenticatedRequests;
+    private final Counter anonymousRequests;
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
-    public AuthTokenFilter(JwtUtils jwtUtils, UserDetailsServiceImpl userDetailsService) {
+    public AuthTokenFilter(JwtUtils jwtUtils, TokenVersionService tokenVersionService,
+                           PublicRouteRegistry publicRouteRegistry, MeterRegistry meterRegistry) {
         this.jwtUtils = jwtUtils;
-        this.userDetailsService = userDetailsService;
+        this.tokenVersionService = tokenVersionService;
+        this.publicRouteRegistry = publicRouteRegistry;
+        this.bypassedRequests = meterRegistry.counter("auth.filter.requests", "outcome", "bypassed");
+        this.authenticatedRequests = meterRegistry.counter("auth.filter.requests", "outcome", "authenticated");
+        this.anonymousRequests = meterRegistry.counter("auth.filter.requests", "outcome", "anonymous");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (publicRouteRegistry.matches(request)) {
+            bypassedRequests.increment();
+            return true;
+        }
+        return false;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
-        String path = request.getRequestURI();
-
-        if (path.startsWith("/h2-console") || path.equals("/favicon.ico") || path.equals("/error") ||
-            path.equals("/api/auth/signin") || path.equals("/api/auth/signup") || path.equals("/api/auth/refresh-token") || 
-            path.startsWith("/uploads/")) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-
         try {
             String jwt = parseJwt(request);
-            if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-                String username = jwtUtils.getUserNameFromJwtToken(jwt);
+            Optional<UserDetailsImpl> principal = Optional.ofNullable(jwt)
+                    .flatMap(jwtUtils::parseAndValidate)
+                    .flatMap(jwtUtils::getUserDetailsFromClaims)
+                    .filter(tokenVersionService::isCurrent);
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            if (principal.isPresent()) {
+                UserDetailsImpl userDetails = principal.get();
                 UsernamePasswordAuthenticationToken authentication =
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
                 SecurityContextHolder.getContext().setAuthentication(authentication);
+                authenticatedRequests.increment();
+            } else {
+                anonymousRequests.increment();
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
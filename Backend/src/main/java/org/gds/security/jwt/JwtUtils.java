@@ -3,70 +3,78 @@ package org.gds.security.jwt;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.gds.security.services.UserDetailsImpl;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import java.security.Key;
 import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 
 @Component
 public class JwtUtils {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+    private static final String CLAIM_USER_ID = "uid";
+    private static final String CLAIM_ROLES = "roles";
+    private static final String CLAIM_TOKEN_VERSION = "ver";
+
     @Value("${gds.app.jwtSecret}")
     private String jwtSecret;
 
     @Value("${gds.app.jwtExpirationMs}")
     private int jwtExpirationMs;
 
-    private Key key() {
-        return Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+    // Both are immutable and thread-safe, so they are built once instead of per token.
+    private Key signingKey;
+    private JwtParser jwtParser;
+
+    @PostConstruct
+    void init() {
+        this.signingKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(jwtSecret));
+        this.jwtParser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
     }
 
-    
+
     public String generateJwtToken(Authentication authentication) {
-        UserDetailsImpl userPrincipal = (UserDetailsImpl) authentication.getPrincipal();
-        return Jwts.builder()
-                .setSubject(userPrincipal.getUsername())
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
-                .compact();
+        return generateJwtToken((UserDetailsImpl) authentication.getPrincipal());
     }
 
-    
-    public String generateTokenFromUsername(String username) {
+
+    public String generateJwtToken(UserDetailsImpl userPrincipal) {
+        List<String> roles = userPrincipal.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+
+        Date now = new Date();
         return Jwts.builder()
-                .setSubject(username)
-                .setIssuedAt(new Date())
-                .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
-                .signWith(key(), SignatureAlgorithm.HS256)
+                .setSubject(userPrincipal.getUsername())
+                .claim(CLAIM_USER_ID, userPrincipal.getId())
+                .claim(CLAIM_ROLES, roles)
+                .claim(CLAIM_TOKEN_VERSION, userPrincipal.getTokenVersion())
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + jwtExpirationMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    
-    public String getUserNameFromJwtToken(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(token)
-                .getBody()
-                .getSubject();
-    }
-
-    
-    public boolean validateJwtToken(String authToken) {
+    /**
+     * Verifies the signature and expiry of the token and returns its claims in a single parse.
+     * Returns an empty Optional if the token is invalid for any reason.
+     */
+    public Optional<Claims> parseAndValidate(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(key())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
+            return Optional.of(jwtParser.parseClaimsJws(authToken).getBody());
         } catch (MalformedJwtException e) {
             logger.error("Invalid JWT token: {}", e.getMessage());
         } catch (ExpiredJwtException e) {
@@ -75,7 +83,29 @@ public class JwtUtils {
             logger.error("JWT token is unsupported: {}", e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("JWT claims string is empty: {}", e.getMessage());
+        } catch (JwtException e) {
+            // SignatureException and any other failure not handled above
+            logger.error("Invalid JWT token ({}): {}", e.getClass().getSimpleName(), e.getMessage());
+        }
+        return Optional.empty();
+    }
+
+
+    /**
+     * Rebuilds the authenticated principal from verified claims without touching the database.
+     * Returns an empty Optional for tokens that do not carry the principal claims.
+     */
+    @SuppressWarnings("unchecked")
+    public Optional<UserDetailsImpl> getUserDetailsFromClaims(Claims claims) {
+        Long userId = claims.get(CLAIM_USER_ID, Long.class);
+        List<String> roles = claims.get(CLAIM_ROLES, List.class);
+        Integer tokenVersion = claims.get(CLAIM_TOKEN_VERSION, Integer.class);
+
+        if (userId == null || roles == null || tokenVersion == null) {
+            logger.error("JWT token is missing principal claims");
+            return Optional.empty();
         }
-        return false;
+
+        return Optional.of(UserDetailsImpl.build(userId, claims.getSubject(), roles, tokenVersion));
     }
-}
\ No newline at end of file
+}
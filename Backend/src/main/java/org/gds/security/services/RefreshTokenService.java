@@ -1,43 +1,89 @@
 package org.gds.security.services;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.gds.model.RefreshToken;
 import org.gds.repository.RefreshTokenRepository;
 import org.gds.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Service
 public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+
     @Value("${gds.app.jwtRefreshExpirationMs}")
     private Long refreshTokenDurationMs;
 
+    @Value("${gds.app.refreshTokensPerUser}")
+    private int refreshTokensPerUser;
+
+    @Value("${gds.app.refreshTokenReuseGraceMs}")
+    private long refreshTokenReuseGraceMs;
+
     @Autowired
     private RefreshTokenRepository refreshTokenRepository;
 
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     public Optional<RefreshToken> findByToken(String token) {
-        return refreshTokenRepository.findByToken(token);
+        return refreshTokenRepository.findByTokenHash(hash(token));
     }
 
+    @Transactional
     public RefreshToken createRefreshToken(Long userId) {
-        RefreshToken refreshToken = new RefreshToken();
+        // Keep at most refreshTokensPerUser sessions per user, dropping the ones closest to expiry.
+        List<RefreshToken> existing = refreshTokenRepository.findByUserIdOrderByExpiryDateAsc(userId);
+        int excess = existing.size() - refreshTokensPerUser + 1;
+        if (excess > 0) {
+            refreshTokenRepository.deleteAll(existing.subList(0, excess));
+        }
+
+        String token = UUID.randomUUID().toString();
 
-        refreshToken.setUser(userRepository.findById(userId).get());
+        RefreshToken refreshToken = new RefreshToken();
+        refreshToken.setUser(userRepository.getReferenceById(userId));
         refreshToken.setExpiryDate(Instant.now().plusMillis(refreshTokenDurationMs));
-        refreshToken.setToken(UUID.randomUUID().toString());
+        refreshToken.setTokenHash(hash(token));
 
         refreshToken = refreshTokenRepository.save(refreshToken);
+        refreshToken.setToken(token);
         return refreshToken;
     }
 
+    /**
+     * Issues a new refresh token in place of a used one. The used token stays valid for a short
+     * grace period so that concurrent refreshes from the same client do not log it out.
+     */
+    @Transactional
+    public RefreshToken rotate(RefreshToken token) {
+        Instant graceExpiry = Instant.now().plusMillis(refreshTokenReuseGraceMs);
+        if (token.getExpiryDate().isAfter(graceExpiry)) {
+            token.setExpiryDate(graceExpiry);
+            refreshTokenRepository.save(token);
+        }
+
+        return createRefreshToken(token.getUser().getId());
+    }
+
     public RefreshToken verifyExpiration(RefreshToken token) {
         if (token.getExpiryDate().compareTo(Instant.now()) < 0) {
             refreshTokenRepository.delete(token);
@@ -51,4 +97,25 @@ public class RefreshTokenService {
     public int deleteByUserId(Long userId) {
         return refreshTokenRepository.deleteByUserId(userId);
     }
+
+    @Scheduled(fixedDelayString = "${gds.app.refreshTokenPurgeIntervalMs}")
+    public void purgeExpiredTokens() {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        int purged = refreshTokenRepository.deleteExpiredBefore(Instant.now());
+        sample.stop(meterRegistry.timer("refresh_tokens.purge.duration"));
+        meterRegistry.summary("refresh_tokens.purge.size").record(purged);
+
+        if (purged > 0) {
+            logger.debug("Purged {} expired refresh tokens", purged);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
 }
@@ -0,0 +1,23 @@
+package org.gds.security.services;
+
+/**
+ * Published when access tokens of a user below the given version stop being accepted. It is
+ * applied once the transaction that revoked them commits.
+ */
+public class TokenRevokedEvent {
+    private final Long userId;
+    private final int minimumVersion;
+
+    public TokenRevokedEvent(Long userId, int minimumVersion) {
+        this.userId = userId;
+        this.minimumVersion = minimumVersion;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public int getMinimumVersion() {
+        return minimumVersion;
+    }
+}
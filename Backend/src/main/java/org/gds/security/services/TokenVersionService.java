@@ -0,0 +1,122 @@
+package org.gds.security.services;
+
+import jakarta.annotation.PostConstruct;
+import org.gds.model.DeletedUser;
+import org.gds.model.User;
+import org.gds.repository.DeletedUserRepository;
+import org.gds.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the minimum token version accepted for each user, so that access tokens can be
+ * revoked (ban, role change, username change, deletion) without a database lookup per request.
+ * Users that were never revoked are not tracked and accept version 0.
+ * <p>
+ * Revocations made on this node take effect when their transaction commits. Those made on
+ * other nodes are picked up from the database every gds.app.tokenVersionRefreshIntervalMs.
+ * Deleted users are remembered in deleted_users until their last access token has expired.
+ * <p>
+ * An entry is dropped gds.app.jwtExpirationMs after its revocation, when every token it was
+ * meant to reject has expired anyway, so memory follows recent revocations rather than every
+ * revocation ever made.
+ */
+@Service
+public class TokenVersionService {
+    private static final Logger logger = LoggerFactory.getLogger(TokenVersionService.class);
+
+    private static final int DELETED = Integer.MAX_VALUE;
+
+    @Value("${gds.app.jwtExpirationMs}")
+    private long jwtExpirationMs;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DeletedUserRepository deletedUserRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, MinimumVersion> minimumVersions = new ConcurrentHashMap<>();
+
+    private record MinimumVersion(int version, Instant revokedAt) {
+        MinimumVersion max(MinimumVersion other) {
+            if (version != other.version) {
+                return version > other.version ? this : other;
+            }
+            return revokedAt.isAfter(other.revokedAt) ? this : other;
+        }
+    }
+
+    @PostConstruct
+    void loadRevokedVersions() {
+        refresh();
+        logger.debug("Loaded token versions for {} users", minimumVersions.size());
+    }
+
+    @Scheduled(fixedDelayString = "${gds.app.tokenVersionRefreshIntervalMs}")
+    public void refresh() {
+        Instant cutoff = Instant.now().minusMillis(jwtExpirationMs);
+        for (Object[] row : userRepository.findTokenVersionsRevokedSince(cutoff)) {
+            raise((Long) row[0], (Integer) row[1], (Instant) row[2]);
+        }
+        deletedUserRepository.deleteByDeletedAtBefore(cutoff);
+        for (Object[] row : deletedUserRepository.findAllDeletions()) {
+            raise((Long) row[0], DELETED, (Instant) row[1]);
+        }
+        // Every token issued before these revocations has expired by now.
+        minimumVersions.values().removeIf(minimum -> minimum.revokedAt().isBefore(cutoff));
+    }
+
+    /**
+     * Invalidates every access token issued so far for the user. The caller is responsible
+     * for saving the user, in the same transaction, so the new version survives a restart.
+     */
+    public int revoke(User user) {
+        int version = user.getTokenVersion() + 1;
+        user.setTokenVersion(version);
+        user.setTokenRevokedAt(Instant.now());
+        eventPublisher.publishEvent(new TokenRevokedEvent(user.getId(), version));
+        return version;
+    }
+
+    /**
+     * Invalidates every access token of a user that is being deleted, for as long as any of
+     * them could still be unexpired.
+     */
+    public void revokeDeleted(User user) {
+        deletedUserRepository.save(new DeletedUser(user.getId()));
+        eventPublisher.publishEvent(new TokenRevokedEvent(user.getId(), DELETED));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTokenRevoked(TokenRevokedEvent event) {
+        // Timed at commit, a little after the database timestamp, so it is dropped no earlier.
+        raise(event.getUserId(), event.getMinimumVersion(), Instant.now());
+    }
+
+    private void raise(Long userId, int version, Instant revokedAt) {
+        minimumVersions.merge(userId, new MinimumVersion(version, revokedAt), MinimumVersion::max);
+    }
+
+    public boolean isCurrent(UserDetailsImpl userDetails) {
+        MinimumVersion minimum = minimumVersions.get(userDetails.getId());
+        if (minimum != null && userDetails.getTokenVersion() < minimum.version()) {
+            logger.warn("Rejected revoked JWT token for user: {}", userDetails.getUsername());
+            return false;
+        }
+        return true;
+    }
+}
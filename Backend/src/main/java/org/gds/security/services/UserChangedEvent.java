@@ -0,0 +1,17 @@
+package org.gds.security.services;
+
+/**
+ * Published whenever a user's credentials, roles, ban status or identity change,
+ * so that anything caching the user's security details can drop its copy.
+ */
+public class UserChangedEvent {
+    private final Long userId;
+
+    public UserChangedEvent(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
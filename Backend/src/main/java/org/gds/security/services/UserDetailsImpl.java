@@ -28,10 +28,11 @@ public class UserDetailsImpl implements UserDetails {
 
     private Collection<? extends GrantedAuthority> authorities;
     private boolean banned;
+    private int tokenVersion;
 
     public UserDetailsImpl(Long id, String username, String email, String password,
                           String firstName, String lastName, String phoneNumber, String location,
-                          Collection<? extends GrantedAuthority> authorities, boolean banned) {
+                          Collection<? extends GrantedAuthority> authorities, boolean banned, int tokenVersion) {
         this.id = id;
         this.username = username;
         this.email = email;
@@ -42,6 +43,7 @@ public class UserDetailsImpl implements UserDetails {
         this.location = location;
         this.authorities = authorities;
         this.banned = banned;
+        this.tokenVersion = tokenVersion;
     }
 
 
@@ -60,10 +62,29 @@ public class UserDetailsImpl implements UserDetails {
                 user.getPhoneNumber(),
                 user.getLocation(),
                 authorities,
-                user.isBanned()
+                user.isBanned(),
+                user.getTokenVersion()
         );
     }
 
+    /**
+     * Rebuilds the principal from verified access-token claims. Only the id, username and
+     * roles are carried by the token; profile fields are left empty.
+     */
+    public static UserDetailsImpl build(Long id, String username, List<String> roles, int tokenVersion) {
+        List<GrantedAuthority> authorities = roles.stream()
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toList());
+
+        return new UserDetailsImpl(id, username, null, null, null, null, null, null,
+                authorities, false, tokenVersion);
+    }
+
+    public UserDetailsImpl withPassword(String newPassword) {
+        return new UserDetailsImpl(id, username, email, newPassword, firstName, lastName, phoneNumber, location,
+                authorities, banned, tokenVersion);
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return authorities;
@@ -93,6 +114,10 @@ public class UserDetailsImpl implements UserDetails {
         return location;
     }
 
+    public int getTokenVersion() {
+        return tokenVersion;
+    }
+
     @Override
     public String getPassword() {
         return password;
@@ -1,32 +1,135 @@
 package org.gds.security.services;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.gds.model.User;
 import org.gds.repository.UserRepository;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserRepository userRepository;
+
+    // Keyed by the identifier used to log in, which may be either the username or the email.
+    private final Cache<String, UserDetailsImpl> userDetailsCache;
 
-    @Autowired
-    UserRepository userRepository;
+    // The identifiers each user is cached under, so that a user can be evicted without a scan.
+    private final ConcurrentMap<Long, Set<String>> identifiersByUser = new ConcurrentHashMap<>();
+
+    // Bumped on every eviction. A load that overlaps one may have read the old user and is not kept.
+    private final AtomicLong evictions = new AtomicLong();
+
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  @Value("${gds.app.userDetailsCacheSize}") long cacheSize,
+                                  @Value("${gds.app.userDetailsCacheTtlSeconds}") long cacheTtlSeconds,
+                                  MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.userDetailsCache = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(cacheTtlSeconds))
+                .evictionListener((String identifier, UserDetailsImpl userDetails, RemovalCause cause) ->
+                        unindex(userDetails.getId(), identifier))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, userDetailsCache, "userDetails");
+    }
 
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String identifier) throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(identifier)
-                .or(() -> userRepository.findByEmail(identifier)) // Dacă nu găsește, caută după email
-                .orElseThrow(() -> new UsernameNotFoundException(
-                        "User not found with username or email: " + identifier));
+        UserDetailsImpl userDetails = userDetailsCache.getIfPresent(identifier);
+        if (userDetails == null) {
+            userDetails = load(identifier);
+        }
 
-        if (user.isBanned()) {
+        if (!userDetails.isEnabled()) {
             throw new UsernameNotFoundException("This account has been banned");
         }
 
+        return userDetails;
+    }
+
+    private UserDetailsImpl load(String identifier) {
+        long evictionsBefore = evictions.get();
+        UserDetailsImpl userDetails = loadFromDatabase(identifier);
+
+        // Indexed after the put, so that an eviction of the expired entry it replaces cannot
+        // remove the new index entry.
+        userDetailsCache.put(identifier, userDetails);
+        identifiersByUser.computeIfAbsent(userDetails.getId(), id -> ConcurrentHashMap.newKeySet()).add(identifier);
+        if (evictions.get() != evictionsBefore) {
+            userDetailsCache.invalidate(identifier);
+        }
+        return userDetails;
+    }
+
+    private UserDetailsImpl loadFromDatabase(String identifier) {
+        List<User> matches = userRepository.findByLoginIdentifierWithRoles(identifier.toLowerCase(Locale.ROOT));
+
+        // Usernames that only differ by case predate the case-insensitive lookup, so several users
+        // may match. Prefer an exact username, then an exact email, then the oldest account.
+        User user = matches.stream()
+                .min(Comparator.comparingInt((User candidate) -> matchRank(candidate, identifier))
+                        .thenComparing(User::getId))
+                .orElseThrow(() -> new UsernameNotFoundException(
+                        "User not found with username or email: " + identifier));
+
         return UserDetailsImpl.build(user);
     }
+
+    private static int matchRank(User candidate, String identifier) {
+        if (candidate.getUsername().equals(identifier)) {
+            return 0;
+        }
+        if (candidate.getEmail().equals(identifier)) {
+            return 1;
+        }
+        return candidate.getUsername().equalsIgnoreCase(identifier) ? 2 : 3;
+    }
+
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetailsImpl userDetails = (UserDetailsImpl) user;
+        userRepository.updatePassword(userDetails.getId(), newPassword);
+        evict(userDetails.getId());
+        return userDetails.withPassword(newPassword);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        evict(event.getUserId());
+    }
+
+    private void evict(Long userId) {
+        evictions.incrementAndGet();
+        Set<String> identifiers = identifiersByUser.remove(userId);
+        if (identifiers != null) {
+            userDetailsCache.invalidateAll(identifiers);
+        }
+    }
+
+    private void unindex(Long userId, String identifier) {
+        identifiersByUser.computeIfPresent(userId, (id, identifiers) -> {
+            identifiers.remove(identifier);
+            return identifiers.isEmpty() ? null : identifiers;
+        });
+    }
 }
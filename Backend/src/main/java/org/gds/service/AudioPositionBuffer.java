@@ -0,0 +1,81 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Absorbs playback position updates in memory and writes them every
+ * gds.app.audioPositionFlushIntervalMs with one batched UPDATE. Players report their position
+ * every few seconds, and only the latest value per file matters, so later updates simply
+ * replace earlier ones that have not been written yet. Pending values are flushed on shutdown.
+ */
+@Service
+public class AudioPositionBuffer {
+
+    private static final String UPDATE_SQL = "UPDATE audio SET last_position = ? WHERE id = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Long, Integer> pending = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gaugeMapSize("audio.position.pending", List.of(), pending);
+    }
+
+    public void record(Long audioId, int position) {
+        pending.put(audioId, position);
+    }
+
+    /**
+     * Returns the position waiting to be written for the file, if any.
+     */
+    public Integer pendingPosition(Long audioId) {
+        return pending.get(audioId);
+    }
+
+    public void discard(Long audioId) {
+        pending.remove(audioId);
+    }
+
+    @Scheduled(fixedDelayString = "${gds.app.audioPositionFlushIntervalMs}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<Long, Integer>> batch = new ArrayList<>(pending.size());
+        pending.forEach((id, position) -> batch.add(Map.entry(id, position)));
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        jdbcTemplate.batchUpdate(UPDATE_SQL, batch, batch.size(), (statement, entry) -> {
+            statement.setInt(1, entry.getValue());
+            statement.setLong(2, entry.getKey());
+        });
+        sample.stop(meterRegistry.timer("audio.position.flush.duration"));
+        meterRegistry.summary("audio.position.flush.size").record(batch.size());
+
+        // Keep any value that was replaced while the batch was being written.
+        batch.forEach(entry -> pending.remove(entry.getKey(), entry.getValue()));
+    }
+
+    @PreDestroy
+    void drain() {
+        flush();
+    }
+}
@@ -13,20 +13,42 @@ public class AudioService {
     @Autowired
     private AudioRepository audioRepository;
 
+    @Autowired
+    private AudioPositionBuffer positionBuffer;
+
     public Audio save(Audio audio) {
         return audioRepository.save(audio);
     }
 
     public List<Audio> findAll() {
-        return audioRepository.findAll();
+        List<Audio> audios = audioRepository.findAll();
+        audios.forEach(this::applyPendingPosition);
+        return audios;
     }
 
     public Optional<Audio> findById(Long id) {
-        return audioRepository.findById(id);
+        return audioRepository.findById(id).map(this::applyPendingPosition);
+    }
+
+    /**
+     * Records the playback position without touching the database; AudioPositionBuffer writes
+     * it with the next batch. Positions for unknown ids are dropped by that UPDATE.
+     */
+    public void updatePosition(Long id, int position) {
+        positionBuffer.record(id, position);
     }
 
     public void deleteById(Long id) {
+        positionBuffer.discard(id);
         audioRepository.deleteById(id);
     }
-}
 
+    // Reads see the latest reported position even before it has been flushed.
+    private Audio applyPendingPosition(Audio audio) {
+        Integer position = positionBuffer.pendingPosition(audio.getId());
+        if (position != null) {
+            audio.setLastPosition(position);
+        }
+        return audio;
+    }
+}
@@ -0,0 +1,157 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves audio files with support for byte ranges and conditional requests, so that a player
+ * seeking into a file fetches only the part it needs and a cached file is revalidated without
+ * being downloaded again.
+ * <p>
+ * A single range is answered with 206 Partial Content. Requests for several ranges are answered
+ * with the whole file, which the specification allows and which players do not send in practice.
+ * The body is copied with FileChannel.transferTo rather than through a heap buffer.
+ */
+@Service
+public class AudioStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(AudioStreamService.class);
+
+    private static final CacheControl CACHE_CONTROL = CacheControl.maxAge(Duration.ofHours(1));
+
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gauge("audio.stream.active", activeStreams);
+    }
+
+    public void stream(Path file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        String etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL.getHeaderValue());
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long start = 0;
+        long end = length - 1;
+        List<HttpRange> ranges = rangesToServe(request, etag, lastModified);
+        boolean partial = ranges.size() == 1;
+        if (partial) {
+            HttpRange range = ranges.get(0);
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length);
+            if (start >= length || start > end) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+
+        long count = end - start + 1;
+        response.setContentType(MediaTypeFactory.getMediaType(file.getFileName().toString())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        transfer(file, start, count, response, partial);
+    }
+
+    /**
+     * Returns the requested ranges, or none when the whole file should be sent: when there is
+     * no valid Range header, or when If-Range names a different version of the file.
+     */
+    private static List<HttpRange> rangesToServe(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null) {
+            return List.of();
+        }
+
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            long ifRangeDate = -1;
+            try {
+                ifRangeDate = request.getDateHeader(HttpHeaders.IF_RANGE);
+            } catch (IllegalArgumentException ignored) {
+                // an entity tag that does not match
+            }
+            // HTTP dates have a resolution of one second.
+            if (ifRangeDate == -1 || lastModified / 1000 != ifRangeDate / 1000) {
+                return List.of();
+            }
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored rather than rejected.
+            return List.of();
+        }
+    }
+
+    private void transfer(Path file, long start, long count, HttpServletResponse response, boolean partial) throws IOException {
+        activeStreams.incrementAndGet();
+        long sent = 0;
+        long startedAt = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            while (sent < count) {
+                long transferred = channel.transferTo(start + sent, count - sent, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                sent += transferred;
+            }
+            response.flushBuffer();
+        } catch (IOException e) {
+            // Players routinely abort a response when the user seeks elsewhere.
+            logger.debug("Audio stream of {} ended after {} of {} bytes: {}", file.getFileName(), sent, count, e.getMessage());
+        } finally {
+            activeStreams.decrementAndGet();
+            long elapsed = System.nanoTime() - startedAt;
+            String type = partial ? "partial" : "full";
+            meterRegistry.timer("audio.stream.duration", "type", type).record(elapsed, TimeUnit.NANOSECONDS);
+            meterRegistry.summary("audio.stream.bytes", "type", type).record(sent);
+            if (elapsed > 0) {
+                meterRegistry.summary("audio.stream.throughput", "type", type)
+                        .record(sent * 1_000_000_000.0 / elapsed);
+            }
+        }
+    }
+}
@@ -28,4 +28,9 @@ public class CarPhotoService {
     public void deleteById(Long id) {
         carPhotoRepository.deleteById(id);
     }
+
+    // Applies to every photo sharing the stored file, since variants are shared with it.
+    public void updateVariantUrls(String filename, String thumbnailUrl, String mediumUrl) {
+        carPhotoRepository.updateVariantUrls(filename, thumbnailUrl, mediumUrl);
+    }
 }
\ No newline at end of file
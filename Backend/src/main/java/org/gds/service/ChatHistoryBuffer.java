@@ -0,0 +1,99 @@
+package org.gds.service;
+
+import jakarta.annotation.PostConstruct;
+import org.gds.dto.ChatDTO;
+import org.gds.repository.ChatRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The newest gds.app.chatRetentionSize chat messages, oldest first, kept in memory so that
+ * chat reads never touch the database. The database remains the durable copy and is only
+ * read once, at startup, to warm the buffer.
+ * <p>
+ * With a shared STOMP broker other nodes write to the same table, so the buffer is also
+ * reloaded every gds.app.chatHistoryRefreshIntervalMs to pick up their messages and deletes.
+ * Chat writes are synchronous in that mode, so the table already holds every message this
+ * node has appended.
+ * <p>
+ * Readers get an immutable snapshot through a volatile read and never block. Writers are
+ * serialized and publish a new snapshot; with the buffer capped at a few hundred entries the
+ * copy is cheaper than coordinating readers with a mutable ring.
+ */
+@Component
+public class ChatHistoryBuffer {
+    private static final Logger logger = LoggerFactory.getLogger(ChatHistoryBuffer.class);
+
+    @Value("${gds.app.chatRetentionSize}")
+    private int capacity;
+
+    @Value("${gds.app.stompBroker}")
+    private String brokerMode;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    private volatile List<ChatDTO> snapshot = List.of();
+
+    @PostConstruct
+    void warm() {
+        load();
+    }
+
+    @Scheduled(fixedDelayString = "${gds.app.chatHistoryRefreshIntervalMs}")
+    public void refresh() {
+        if (!"simple".equals(brokerMode)) {
+            load();
+        }
+    }
+
+    // Reads while holding the lock, so that a message appended meanwhile is added after the load.
+    private synchronized void load() {
+        List<ChatDTO> newest = new ArrayList<>(chatRepository.findNewestDTOs(PageRequest.of(0, capacity)));
+        Collections.reverse(newest);
+        snapshot = Collections.unmodifiableList(newest);
+        logger.debug("Loaded {} chat messages into the history buffer", newest.size());
+    }
+
+    /**
+     * Returns the buffered messages, oldest first.
+     */
+    public List<ChatDTO> snapshot() {
+        return snapshot;
+    }
+
+    public synchronized void append(ChatDTO message) {
+        List<ChatDTO> next = new ArrayList<>(snapshot);
+
+        // Messages saved concurrently may arrive slightly out of id order.
+        int position = next.size();
+        while (position > 0 && next.get(position - 1).getId() > message.getId()) {
+            position--;
+        }
+        if (position > 0 && next.get(position - 1).getId().equals(message.getId())) {
+            // Already loaded from the database by a refresh.
+            return;
+        }
+        next.add(position, message);
+        if (next.size() > capacity) {
+            next.remove(0);
+        }
+        snapshot = Collections.unmodifiableList(next);
+    }
+
+    public synchronized void remove(Long messageId) {
+        List<ChatDTO> next = new ArrayList<>(snapshot);
+        if (next.removeIf(message -> message.getId().equals(messageId))) {
+            snapshot = Collections.unmodifiableList(next);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.gds.repository.ChatRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps only the newest gds.app.chatRetentionSize chat messages. Trimming runs on the
+ * scheduler thread, either periodically or as soon as enough messages have been written since
+ * the last trim, and deletes everything older than the oldest kept message in one statement.
+ */
+@Service
+public class ChatRetentionService {
+    private static final Logger logger = LoggerFactory.getLogger(ChatRetentionService.class);
+
+    @Value("${gds.app.chatRetentionSize}")
+    private int retentionSize;
+
+    @Value("${gds.app.chatTrimHighWaterMark}")
+    private int highWaterMark;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private TaskScheduler taskScheduler;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicInteger insertsSinceTrim = new AtomicInteger();
+
+    /**
+     * Called after each stored message. Schedules an immediate trim once the number of messages
+     * written since the last one reaches the high-water mark.
+     */
+    public void recordInsert() {
+        if (insertsSinceTrim.incrementAndGet() == highWaterMark) {
+            taskScheduler.schedule(this::trim, Instant.now());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gds.app.chatTrimIntervalMs}")
+    public void trim() {
+        insertsSinceTrim.set(0);
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        List<Long> oldestKept = chatRepository.findIdsNewestFirst(PageRequest.of(retentionSize - 1, 1));
+        int trimmed = oldestKept.isEmpty() ? 0 : chatRepository.deleteOlderThanId(oldestKept.get(0));
+        sample.stop(meterRegistry.timer("chat.trim.duration"));
+        meterRegistry.summary("chat.trim.size").record(trimmed);
+
+        if (trimmed > 0) {
+            logger.debug("Trimmed {} chat messages", trimmed);
+        }
+    }
+}
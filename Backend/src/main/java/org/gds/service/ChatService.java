@@ -1,22 +1,32 @@
 package org.gds.service;
 
 import org.gds.dto.ChatDTO;
+import org.gds.dto.CursorPage;
+import org.gds.dto.KeysetCursor;
 import org.gds.model.Chat;
 import org.gds.model.User;
 import org.gds.repository.ChatRepository;
 import org.gds.repository.UserRepository;
+import org.gds.security.services.UserDetailsImpl;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
-import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 
 @Service
 public class ChatService {
 
+    public static final String SYSTEM_USERNAME = "system";
+
     @Autowired
     private ChatRepository chatRepository;
 
@@ -26,62 +36,89 @@ public class ChatService {
     @Autowired
     private SimpMessagingTemplate messagingTemplate;
 
+    @Autowired
+    private ChatRetentionService chatRetentionService;
 
-    public Page<Chat> getRecentMessages(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return chatRepository.findAllByOrderByTimestampDesc(pageable);
-    }
+    @Autowired
+    private ChatHistoryBuffer chatHistoryBuffer;
 
+    @Autowired
+    private ChatWriteBehindQueue chatWriteBehindQueue;
 
-    public Page<ChatDTO> getRecentMessagesDTO(int page, int size) {
-        Page<Chat> messages = getRecentMessages(page, size);
-        return messages.map(chat -> new ChatDTO(chat.getId(), chat.getMessage(), chat.getSender().getUsername(), chat.getTimestamp()));
-    }
+    @Value("${gds.app.chatWriteBehind}")
+    private boolean writeBehind;
 
+    private volatile User systemUser;
 
-    public Page<Chat> getChatHistory(int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        return chatRepository.findAllByOrderByTimestampAsc(pageable);
+
+    // Chat reads are served from ChatHistoryBuffer, which is ordered by id, oldest first.
+
+    public Page<ChatDTO> getRecentMessagesDTO(int page, int size) {
+        List<ChatDTO> messages = new ArrayList<>(chatHistoryBuffer.snapshot());
+        Collections.reverse(messages);
+        return toPage(messages, PageRequest.of(page, size));
     }
 
 
     public Page<ChatDTO> getChatHistoryDTO(int page, int size) {
-        Page<Chat> messages = getChatHistory(page, size);
-        return messages.map(chat -> new ChatDTO(chat.getId(), chat.getMessage(), chat.getSender().getUsername(), chat.getTimestamp()));
+        return toPage(chatHistoryBuffer.snapshot(), PageRequest.of(page, size));
     }
 
 
-    public Chat sendMessage(String message, String username) {
-        User user = userRepository.findByUsername(username)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
-
-        Chat chat = new Chat(message, user);
-        chat = chatRepository.save(chat);
+    public CursorPage<ChatDTO> getRecentMessagesByCursor(String cursor, int size) {
+        KeysetCursor before = KeysetCursor.decode(cursor);
+        List<ChatDTO> messages = chatHistoryBuffer.snapshot();
+        List<ChatDTO> rows = new ArrayList<>(size + 1);
+        for (int i = messages.size() - 1; i >= 0 && rows.size() <= size; i--) {
+            ChatDTO message = messages.get(i);
+            if (before == null || message.getId() < before.getId()) {
+                rows.add(message);
+            }
+        }
+        return CursorPage.of(rows, size, message -> new KeysetCursor(message.getTimestamp(), message.getId()));
+    }
 
-        cleanupOldMessages();
 
-        return chat;
+    public CursorPage<ChatDTO> getChatHistoryByCursor(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        List<ChatDTO> rows = chatHistoryBuffer.snapshot().stream()
+                .filter(message -> after == null || message.getId() > after.getId())
+                .limit(size + 1L)
+                .toList();
+        return CursorPage.of(rows, size, message -> new KeysetCursor(message.getTimestamp(), message.getId()));
     }
 
-    private void cleanupOldMessages() {
-        long count = chatRepository.count();
-        if (count > 200) {
-            Pageable pageable = PageRequest.of(0, (int)(count - 200));
-            Page<Chat> oldestMessages = chatRepository.findAllByOrderByTimestampAsc(pageable);
 
-            oldestMessages.forEach(oldMessage -> chatRepository.deleteById(oldMessage.getId()));
-        }
+    private static Page<ChatDTO> toPage(List<ChatDTO> messages, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), messages.size());
+        int to = Math.min(from + pageable.getPageSize(), messages.size());
+        return new PageImpl<>(messages.subList(from, to), pageable, messages.size());
     }
 
 
-    public ChatDTO sendMessageDTO(String message, String username) {
-        Chat chat = sendMessage(message, username);
-        return new ChatDTO(chat.getId(), chat.getMessage(), chat.getSender().getUsername(), chat.getTimestamp());
+    /**
+     * Sends a message from the authenticated user. The sender is taken from the principal, whose
+     * id and username come from the access token, so the users table is not read per message.
+     */
+    public ChatDTO sendMessageDTO(String message, UserDetailsImpl sender) {
+        if (writeBehind) {
+            return enqueue(message, sender.getId(), sender.getUsername());
+        }
+
+        Chat chat = chatRepository.save(new Chat(message, userRepository.getReferenceById(sender.getId())));
+        ChatDTO chatDTO = new ChatDTO(chat.getId(), chat.getMessage(), sender.getUsername(), chat.getTimestamp());
+        chatHistoryBuffer.append(chatDTO);
+        chatRetentionService.recordInsert();
+        return chatDTO;
     }
 
 
     public void deleteMessage(Long id) {
+        if (writeBehind) {
+            chatWriteBehindQueue.cancel(id);
+        }
         chatRepository.deleteById(id);
+        chatHistoryBuffer.remove(id);
 
         ChatDTO chatDTO = createSystemMessageDTO("A message has been deleted by an administrator");
         messagingTemplate.convertAndSend("/topic/public", chatDTO);
@@ -89,32 +126,49 @@ public class ChatService {
 
 
     public Chat createSystemMessage(String message) {
-        User systemUser = userRepository.findByUsername("system")
-                .orElseGet(() -> {
-                    User system = new User();
-                    system.setUsername("system");
-                    system.setEmail("system@example.com");
-                    system.setPassword("not-applicable");
-
-                    system.setFirstName("System");
-                    system.setLastName("User");
-                    system.setPhoneNumber("-");
-                    system.setLocation("N/A");
-
-                    return userRepository.save(system);
-                });
-
-        Chat chat = new Chat(message, systemUser);
+        Chat chat = new Chat(message, getSystemUser());
         chat = chatRepository.save(chat);
 
-        cleanupOldMessages();
+        chatHistoryBuffer.append(toDTO(chat));
+        chatRetentionService.recordInsert();
 
         return chat;
     }
 
 
+    /**
+     * The system user is provisioned by DataInitializer at startup and never changes
+     * afterwards, so it is looked up once and then reused for every system message.
+     */
+    private User getSystemUser() {
+        User user = systemUser;
+        if (user == null) {
+            user = userRepository.findByUsername(SYSTEM_USERNAME)
+                    .orElseThrow(() -> new IllegalStateException("System user has not been provisioned"));
+            systemUser = user;
+        }
+        return user;
+    }
+
+
     public ChatDTO createSystemMessageDTO(String message) {
-        Chat chat = createSystemMessage(message);
+        if (!writeBehind) {
+            return toDTO(createSystemMessage(message));
+        }
+        User systemUser = getSystemUser();
+        return enqueue(message, systemUser.getId(), systemUser.getUsername());
+    }
+
+
+    private ChatDTO enqueue(String message, Long senderId, String senderUsername) {
+        ChatDTO chatDTO = chatWriteBehindQueue.enqueue(message, senderId, senderUsername);
+        chatHistoryBuffer.append(chatDTO);
+        chatRetentionService.recordInsert();
+        return chatDTO;
+    }
+
+
+    private static ChatDTO toDTO(Chat chat) {
         return new ChatDTO(chat.getId(), chat.getMessage(), chat.getSender().getUsername(), chat.getTimestamp());
     }
 }
@@ -0,0 +1,249 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.gds.dto.ChatDTO;
+import org.gds.model.Chat;
+import org.gds.repository.ChatRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence for chat messages, used when gds.app.chatWriteBehind is enabled.
+ * <p>
+ * Messages get their id and timestamp in memory so they can be broadcast straight away, and
+ * are written to the chats table in JDBC batches every gds.app.chatFlushIntervalMs. The queue is
+ * bounded: when it is full, senders wait briefly and are then refused rather than letting a
+ * stalled database grow the heap without limit. Whatever is still queued at shutdown is
+ * flushed before the application stops.
+ * <p>
+ * Ids come from the chats_seq sequence that JPA uses for {@link Chat}, reserved in blocks
+ * so that queueing a message rarely touches the database. Write-behind runs on a single node
+ * and is then the only writer of chats, so the reserved ids still follow send order. A message
+ * that cannot be written is retried on later flushes when the failure may be transient, and is
+ * otherwise moved to chat_dead_letters.
+ * <p>
+ * A crash loses whatever is still queued, although it was already broadcast, which is why
+ * write-behind is off by default.
+ */
+@Service
+public class ChatWriteBehindQueue {
+    private static final Logger logger = LoggerFactory.getLogger(ChatWriteBehindQueue.class);
+
+    private static final String INSERT_SQL = "INSERT INTO chats (id, message, user_id, timestamp) VALUES (?, ?, ?, ?)";
+    private static final String DEAD_LETTER_SQL = "INSERT INTO chat_dead_letters " +
+            "(message_id, message, user_id, timestamp, error, failed_at) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final long ENQUEUE_TIMEOUT_MS = 1000;
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int ID_BLOCK_SIZE = 50;
+
+    @Value("${gds.app.chatWriteQueueCapacity}")
+    private int queueCapacity;
+
+    @Value("${gds.app.chatFlushBatchSize}")
+    private int flushBatchSize;
+
+    @Autowired
+    private ChatRepository chatRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<PendingChat> queue;
+    private TransactionTemplate transactionTemplate;
+    private final Deque<Long> reservedIds = new ArrayDeque<>();
+
+    // Held while a batch is taken off the queue and written, so that cancel() never misses a
+    // message that is neither queued nor written yet.
+    private final Object writeLock = new Object();
+
+    @PostConstruct
+    void init() {
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        skipIdsInUse();
+        meterRegistry.gauge("chat.write_queue.depth", queue, BlockingQueue::size);
+    }
+
+    /**
+     * Chats used to be numbered by an identity column. Advances the sequence past those ids,
+     * which only ever moves it forward and so is safe with other nodes running.
+     */
+    private void skipIdsInUse() {
+        long maxId = chatRepository.findMaxId();
+        long next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR chats_seq", Long.class);
+        if (next < maxId) {
+            int increment = jdbcTemplate.queryForObject("SELECT INCREMENT FROM INFORMATION_SCHEMA.SEQUENCES " +
+                    "WHERE SEQUENCE_NAME = 'CHATS_SEQ'", Integer.class);
+            long steps = (maxId - next + increment - 1) / increment;
+            jdbcTemplate.queryForObject("SELECT MAX(NEXT VALUE FOR chats_seq) FROM SYSTEM_RANGE(1, ?)", Long.class, steps);
+            logger.info("Advanced chats_seq past existing chat id {}", maxId);
+        }
+    }
+
+    /**
+     * Assigns the message its id and timestamp and queues it for insertion.
+     *
+     * @throws IllegalStateException if the queue stays full for longer than a second
+     */
+    public ChatDTO enqueue(String message, Long senderId, String senderUsername) {
+        PendingChat pending = new PendingChat(nextId(), message, senderId, LocalDateTime.now());
+        try {
+            if (!queue.offer(pending, ENQUEUE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("Chat is overloaded, please try again");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing chat message", e);
+        }
+        return new ChatDTO(pending.id, message, senderUsername, pending.timestamp);
+    }
+
+    private synchronized Long nextId() {
+        if (reservedIds.isEmpty()) {
+            reservedIds.addAll(jdbcTemplate.queryForList(
+                    "SELECT NEXT VALUE FOR chats_seq FROM SYSTEM_RANGE(1, ?) ORDER BY 1", Long.class, ID_BLOCK_SIZE));
+        }
+        return reservedIds.removeFirst();
+    }
+
+    /**
+     * Drops a message that has not been written yet, so that deleting it cannot be undone by
+     * a later flush. Waits for a batch being written, after which the message is either still
+     * queued or in the table.
+     */
+    public void cancel(Long messageId) {
+        synchronized (writeLock) {
+            queue.removeIf(pending -> pending.id.equals(messageId));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${gds.app.chatFlushIntervalMs}")
+    public void flush() {
+        List<PendingChat> batch = new ArrayList<>(flushBatchSize);
+        boolean written = true;
+        while (written) {
+            synchronized (writeLock) {
+                if (queue.drainTo(batch, flushBatchSize) == 0) {
+                    return;
+                }
+                Timer.Sample sample = Timer.start(meterRegistry);
+                written = insert(batch);
+                sample.stop(meterRegistry.timer("chat.write_queue.flush.duration"));
+            }
+            meterRegistry.summary("chat.write_queue.flush.size").record(batch.size());
+            batch.clear();
+        }
+    }
+
+    @PreDestroy
+    void drain() {
+        flush();
+    }
+
+    /**
+     * Writes the batch, falling back to one row at a time if it fails. Returns false if any row
+     * was put back on the queue, in which case the flush stops until the next interval.
+     */
+    private boolean insert(List<PendingChat> batch) {
+        try {
+            // In one transaction, so that a failed batch leaves no rows behind to collide with below.
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), ChatWriteBehindQueue::bind));
+            return true;
+        } catch (DataAccessException e) {
+            // One bad row (for example a sender deleted meanwhile) must not cost the whole batch.
+            logger.warn("Batch insert of {} chat messages failed, retrying one by one: {}", batch.size(), e.getMessage());
+        }
+
+        boolean allWritten = true;
+        for (PendingChat pending : batch) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, statement -> bind(statement, pending));
+            } catch (DataIntegrityViolationException e) {
+                deadLetter(pending, e);
+            } catch (DataAccessException e) {
+                allWritten &= retryLater(pending, e);
+            }
+        }
+        return allWritten;
+    }
+
+    private boolean retryLater(PendingChat pending, DataAccessException error) {
+        pending.attempts++;
+        if (pending.attempts < MAX_ATTEMPTS && queue.offer(pending)) {
+            meterRegistry.counter("chat.write_queue.retries").increment();
+            logger.warn("Chat message {} will be retried (attempt {}): {}", pending.id, pending.attempts, error.getMessage());
+            return false;
+        }
+        deadLetter(pending, error);
+        return true;
+    }
+
+    private void deadLetter(PendingChat pending, DataAccessException error) {
+        meterRegistry.counter("chat.write_queue.dead_letters").increment();
+        try {
+            jdbcTemplate.update(DEAD_LETTER_SQL, pending.id, pending.message, pending.senderId,
+                    Timestamp.valueOf(pending.timestamp), abbreviate(error.getMessage()), Timestamp.valueOf(LocalDateTime.now()));
+            logger.error("Chat message {} moved to chat_dead_letters: {}", pending.id, error.getMessage());
+        } catch (DataAccessException e) {
+            logger.error("Could not store chat message {} from user {} ({}): {}",
+                    pending.id, pending.senderId, pending.message, e.getMessage());
+        }
+    }
+
+    private static String abbreviate(String message) {
+        return message == null || message.length() <= 1000 ? message : message.substring(0, 1000);
+    }
+
+    private static void bind(PreparedStatement statement, PendingChat pending) throws SQLException {
+        statement.setLong(1, pending.id);
+        statement.setString(2, pending.message);
+        statement.setLong(3, pending.senderId);
+        statement.setTimestamp(4, Timestamp.valueOf(pending.timestamp));
+    }
+
+    private static final class PendingChat {
+        private final Long id;
+        private final String message;
+        private final Long senderId;
+        private final LocalDateTime timestamp;
+        private int attempts;
+
+        private PendingChat(Long id, String message, Long senderId, LocalDateTime timestamp) {
+            this.id = id;
+            this.message = message;
+            this.senderId = senderId;
+            this.timestamp = timestamp;
+        }
+    }
+}
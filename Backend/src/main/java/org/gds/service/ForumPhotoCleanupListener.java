@@ -0,0 +1,35 @@
+package org.gds.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Releases photo files only after the rows referencing them are gone, and off the request
+ * thread. A rolled back delete leaves the files in place. Files still referenced by other
+ * photos are kept by MediaStorageService.
+ */
+@Component
+public class ForumPhotoCleanupListener {
+    @Value("${forum.photo.upload.dir:uploads/forum}")
+    private String uploadDir;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    @Qualifier("fileCleanupExecutor")
+    private TaskExecutor fileCleanupExecutor;
+
+    @TransactionalEventListener
+    public void onPhotosDeleted(ForumPhotosDeletedEvent event) {
+        if (event.getFilenames().isEmpty()) {
+            return;
+        }
+        fileCleanupExecutor.execute(() -> event.getFilenames()
+                .forEach(filename -> mediaStorageService.release(uploadDir, filename)));
+    }
+}
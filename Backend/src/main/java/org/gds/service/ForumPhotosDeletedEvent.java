@@ -0,0 +1,19 @@
+package org.gds.service;
+
+import java.util.List;
+
+/**
+ * Published when forum photo rows are deleted, so their files can be removed from disk
+ * once the deleting transaction has committed.
+ */
+public class ForumPhotosDeletedEvent {
+    private final List<String> filenames;
+
+    public ForumPhotosDeletedEvent(List<String> filenames) {
+        this.filenames = filenames;
+    }
+
+    public List<String> getFilenames() {
+        return filenames;
+    }
+}
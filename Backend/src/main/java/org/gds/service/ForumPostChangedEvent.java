@@ -0,0 +1,17 @@
+package org.gds.service;
+
+/**
+ * Published whenever anything shown on a post's detail view changes (the post itself, its
+ * photos or its like counters), so that cached copies of the post can be dropped.
+ */
+public class ForumPostChangedEvent {
+    private final Long postId;
+
+    public ForumPostChangedEvent(Long postId) {
+        this.postId = postId;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+}
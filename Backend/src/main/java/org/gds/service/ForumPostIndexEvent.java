@@ -0,0 +1,43 @@
+package org.gds.service;
+
+/**
+ * Published when a forum post is created, edited or deleted, so that the search index can
+ * follow the change once the transaction has committed.
+ */
+public class ForumPostIndexEvent {
+    private final Long postId;
+    private final String title;
+    private final String content;
+    private final boolean deleted;
+
+    private ForumPostIndexEvent(Long postId, String title, String content, boolean deleted) {
+        this.postId = postId;
+        this.title = title;
+        this.content = content;
+        this.deleted = deleted;
+    }
+
+    public static ForumPostIndexEvent saved(Long postId, String title, String content) {
+        return new ForumPostIndexEvent(postId, title, content, false);
+    }
+
+    public static ForumPostIndexEvent deleted(Long postId) {
+        return new ForumPostIndexEvent(postId, null, null, true);
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+}
@@ -0,0 +1,264 @@
+package org.gds.service;
+
+import org.gds.repository.ForumPostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index over forum post titles and contents.
+ * <p>
+ * Every query word is matched as a prefix of the indexed words, a post must match all query
+ * words, and results are ranked by TF-IDF with title matches weighted above content matches.
+ * The index is built from the database at startup and kept up to date from
+ * {@link ForumPostIndexEvent}s published by ForumService after each commit. Changes that
+ * arrive while a rebuild is reading the posts are applied to the current index and also
+ * recorded, then replayed onto the rebuilt index before it replaces the current one, so a
+ * rebuild cannot lose them. Replaying a change the rebuild has already read is harmless.
+ * <p>
+ * Events only reach the node that made the change. With a shared STOMP broker, where several
+ * nodes write to the same database, the index is therefore also rebuilt every
+ * gds.app.searchIndexRebuildIntervalMs to pick up posts changed through other nodes.
+ */
+@Component
+public class ForumSearchIndex {
+    private static final Logger logger = LoggerFactory.getLogger(ForumSearchIndex.class);
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int MAX_TERM_LENGTH = 50;
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    @Autowired
+    private ForumPostRepository postRepository;
+
+    @Value("${gds.app.stompBroker}")
+    private String brokerMode;
+
+    // term -> (post id -> weighted term frequency)
+    private final NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+    // post id -> terms indexed for it, so that a post can be removed without a full scan
+    private final Map<Long, List<String>> postTerms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object rebuildLock = new Object();
+
+    // Changes made while a rebuild is running, or null when none is; guarded by lock.
+    private List<IndexChange> changesDuringRebuild;
+
+    // A post indexed with the given term frequencies, or removed when they are null.
+    private record IndexChange(Long postId, Map<String, Integer> frequencies) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${gds.app.searchIndexRebuildIntervalMs}",
+            fixedDelayString = "${gds.app.searchIndexRebuildIntervalMs}")
+    public void rebuildForOtherNodes() {
+        if (!"simple".equals(brokerMode)) {
+            rebuild();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(ForumPostIndexEvent event) {
+        if (event.isDeleted()) {
+            remove(event.getPostId());
+        } else {
+            index(event.getPostId(), event.getTitle(), event.getContent());
+        }
+    }
+
+    /**
+     * Discards the index and rebuilds it from the forum_posts table, reading posts in batches.
+     * Returns the number of posts indexed.
+     */
+    public int rebuild() {
+        synchronized (rebuildLock) {
+            long start = System.currentTimeMillis();
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            NavigableMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+            Map<Long, List<String>> newPostTerms = new HashMap<>();
+            try {
+                long lastId = 0;
+                List<Object[]> batch;
+                do {
+                    batch = postRepository.findSearchRows(lastId, Limit.of(REBUILD_BATCH_SIZE));
+                    for (Object[] row : batch) {
+                        Long postId = (Long) row[0];
+                        add(newPostings, newPostTerms, postId, termFrequencies((String) row[1], (String) row[2]));
+                        lastId = postId;
+                    }
+                } while (batch.size() == REBUILD_BATCH_SIZE);
+            } catch (RuntimeException e) {
+                lock.writeLock().lock();
+                try {
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                throw e;
+            }
+
+            int replayed;
+            lock.writeLock().lock();
+            try {
+                replayed = changesDuringRebuild.size();
+                for (IndexChange change : changesDuringRebuild) {
+                    apply(newPostings, newPostTerms, change);
+                }
+                changesDuringRebuild = null;
+                postings.clear();
+                postings.putAll(newPostings);
+                postTerms.clear();
+                postTerms.putAll(newPostTerms);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            logger.info("Indexed {} forum posts ({} terms, {} changes replayed) in {} ms",
+                    newPostTerms.size(), newPostings.size(), replayed, System.currentTimeMillis() - start);
+            return newPostTerms.size();
+        }
+    }
+
+    public void index(Long postId, String title, String content) {
+        record(new IndexChange(postId, termFrequencies(title, content)));
+    }
+
+    public void remove(Long postId) {
+        record(new IndexChange(postId, null));
+    }
+
+    private void record(IndexChange change) {
+        lock.writeLock().lock();
+        try {
+            apply(postings, postTerms, change);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns one page of matching post ids, best match first. Ties are broken by the newer
+     * post (higher id) first. The sort of the given pageable is ignored.
+     */
+    public Page<Long> search(String query, Pageable pageable) {
+        List<String> queryTerms = new ArrayList<>(termFrequencies(query, null).keySet());
+        if (queryTerms.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
+        Map<Long, Double> scores;
+        lock.readLock().lock();
+        try {
+            int postCount = postTerms.size();
+            scores = scorePrefix(queryTerms.get(0), postCount);
+            for (int i = 1; i < queryTerms.size() && !scores.isEmpty(); i++) {
+                Map<Long, Double> termScores = scorePrefix(queryTerms.get(i), postCount);
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((postId, score) -> score + termScores.get(postId));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Long> ranked = scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder())))
+                .map(Map.Entry::getKey)
+                .toList();
+
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(ranked.subList(from, to), pageable, ranked.size());
+    }
+
+    private Map<Long, Double> scorePrefix(String prefix, int postCount) {
+        Map<Long, Double> scores = new HashMap<>();
+        for (Map<Long, Integer> termPostings : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            double idf = Math.log(1 + (double) postCount / termPostings.size());
+            termPostings.forEach((postId, frequency) -> scores.merge(postId, frequency * idf, Double::sum));
+        }
+        return scores;
+    }
+
+    private static void apply(NavigableMap<String, Map<Long, Integer>> postings, Map<Long, List<String>> postTerms,
+                              IndexChange change) {
+        remove(postings, postTerms, change.postId());
+        if (change.frequencies() != null) {
+            add(postings, postTerms, change.postId(), change.frequencies());
+        }
+    }
+
+    private static void add(NavigableMap<String, Map<Long, Integer>> postings, Map<Long, List<String>> postTerms,
+                            Long postId, Map<String, Integer> frequencies) {
+        frequencies.forEach((term, frequency) ->
+                postings.computeIfAbsent(term, key -> new HashMap<>()).put(postId, frequency));
+        postTerms.put(postId, new ArrayList<>(frequencies.keySet()));
+    }
+
+    private static void remove(NavigableMap<String, Map<Long, Integer>> postings, Map<Long, List<String>> postTerms,
+                               Long postId) {
+        List<String> terms = postTerms.remove(postId);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<Long, Integer> termPostings = postings.get(term);
+            termPostings.remove(postId);
+            if (termPostings.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static Map<String, Integer> termFrequencies(String title, String content) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, title, TITLE_WEIGHT);
+        addTerms(frequencies, content, 1);
+        return frequencies;
+    }
+
+    private static void addTerms(Map<String, Integer> frequencies, String text, int weight) {
+        if (text == null) {
+            return;
+        }
+        for (String term : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!term.isEmpty() && term.length() <= MAX_TERM_LENGTH) {
+                frequencies.merge(term, weight, Integer::sum);
+            }
+        }
+    }
+}
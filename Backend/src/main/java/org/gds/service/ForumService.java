@@ -1,5 +1,14 @@
 package org.gds.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import org.gds.dto.CursorPage;
+import org.gds.dto.ForumLikeCountsDTO;
+import org.gds.dto.ForumPostSummaryDTO;
+import org.gds.dto.KeysetCursor;
 import org.gds.model.ForumComment;
 import org.gds.model.ForumLike;
 import org.gds.model.ForumPost;
@@ -9,13 +18,25 @@ import org.gds.repository.ForumCommentRepository;
 import org.gds.repository.ForumLikeRepository;
 import org.gds.repository.ForumPostPhotoRepository;
 import org.gds.repository.ForumPostRepository;
+import org.gds.security.services.UserChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 
 
@@ -34,25 +55,79 @@ public class ForumService {
     @Autowired
     private ForumPostPhotoRepository photoRepository;
 
+    @Autowired
+    private ForumSearchIndex searchIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${gds.app.forumPostCacheSize}")
+    private long postCacheSize;
+
+    @Value("${gds.app.forumPostCacheTtlSeconds}")
+    private long postCacheTtlSeconds;
 
+    // Detail views of the most read posts. Caffeine's W-TinyLFU admission keeps frequently
+    // viewed posts resident instead of whatever was read last. Entries are dropped through
+    // ForumPostChangedEvent; the TTL only bounds staleness from writes made outside this service.
+    private Cache<Long, ForumPost> postCache;
+    private Cache<Long, List<ForumPostPhoto>> photoCache;
 
-    public Page<ForumPost> getAllPosts(Pageable pageable) {
-        return postRepository.findAll(pageable);
+    @PostConstruct
+    void initCaches() {
+        postCache = buildCache("forumPosts");
+        photoCache = buildCache("forumPostPhotos");
+    }
+
+    private <V> Cache<Long, V> buildCache(String name) {
+        Cache<Long, V> cache = Caffeine.newBuilder()
+                .maximumSize(postCacheSize)
+                .expireAfterWrite(Duration.ofSeconds(postCacheTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        return cache;
     }
 
 
-    public Page<ForumPost> getPostsByCategory(String category, Pageable pageable) {
-        return postRepository.findByCategory(category, pageable);
+
+    public Page<ForumPostSummaryDTO> getAllPosts(Pageable pageable) {
+        return postRepository.findSummaries(pageable);
     }
 
 
+    public CursorPage<ForumPostSummaryDTO> getPostsByCursor(String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ForumPostSummaryDTO> rows = after == null
+                ? postRepository.findNewestSummaries(limit)
+                : postRepository.findSummariesOlderThan(after.getTimestamp(), after.getId(), limit);
+        return CursorPage.of(rows, size, post -> new KeysetCursor(post.getCreatedAt(), post.getId()));
+    }
+
+
+    public Page<ForumPostSummaryDTO> getPostsByCategory(String category, Pageable pageable) {
+        return postRepository.findSummariesByCategory(category, pageable);
+    }
+
+
+    /**
+     * Returns the post with its photos and like counters, served from the post cache.
+     * The returned entity is detached and shared, so callers must not modify it.
+     */
     public Optional<ForumPost> getPostById(Long id) {
-        return postRepository.findById(id);
+        return Optional.ofNullable(postCache.get(id, key -> postRepository.findDetailById(key).orElse(null)));
     }
 
 
     public ForumPost createPost(ForumPost post) {
-        return postRepository.save(post);
+        ForumPost savedPost = postRepository.save(post);
+        eventPublisher.publishEvent(
+                ForumPostIndexEvent.saved(savedPost.getId(), savedPost.getTitle(), savedPost.getContent()));
+        return savedPost;
     }
 
 
@@ -62,33 +137,69 @@ public class ForumService {
                     post.setTitle(updatedPost.getTitle());
                     post.setContent(updatedPost.getContent());
                     post.setCategory(updatedPost.getCategory());
-                    return postRepository.save(post);
+                    ForumPost savedPost = postRepository.save(post);
+                    eventPublisher.publishEvent(
+                            ForumPostIndexEvent.saved(savedPost.getId(), savedPost.getTitle(), savedPost.getContent()));
+                    eventPublisher.publishEvent(new ForumPostChangedEvent(savedPost.getId()));
+                    return savedPost;
                 });
     }
 
 
     @Transactional
     public void deletePost(Long id) {
-        postRepository.findById(id).ifPresent(post -> {
-            commentRepository.findByPost(post).forEach(comment ->
-                commentRepository.delete(comment));
+        List<String> filenames = photoRepository.findFilenamesByPostId(id);
 
-            likeRepository.findAll().stream()
-                .filter(like -> like.getPost().getId().equals(id))
-                .forEach(like -> likeRepository.delete(like));
+        commentRepository.deleteByPostId(id);
+        likeRepository.deleteByPostId(id);
+        photoRepository.deleteByPostId(id);
+        postRepository.deleteByIdInBulk(id);
+
+        eventPublisher.publishEvent(new ForumPhotosDeletedEvent(filenames));
+        eventPublisher.publishEvent(ForumPostIndexEvent.deleted(id));
+        eventPublisher.publishEvent(new ForumPostChangedEvent(id));
+    }
 
-            photoRepository.findByPost(post).forEach(photo -> {
-                photoRepository.delete(photo);
-            });
 
-            postRepository.delete(post);
-        });
+    /**
+     * Removes a user's posts, comments and likes ahead of deleting the user. Posts go through
+     * {@link #deletePost}, so the files of their photos are released.
+     */
+    @Transactional
+    public void deleteContentOf(Long userId) {
+        postRepository.findIdsByAuthorId(userId).forEach(this::deletePost);
+
+        List<Long> likedPostIds = likeRepository.findPostIdsByUserId(userId);
+        postRepository.subtractLikesOf(userId);
+        likeRepository.deleteByUserId(userId);
+        commentRepository.deleteByAuthorId(userId);
+        likedPostIds.forEach(postId -> eventPublisher.publishEvent(new ForumPostChangedEvent(postId)));
     }
 
 
-    public Page<ForumPost> searchPosts(String query, Pageable pageable) {
-        return postRepository.findByTitleContainingIgnoreCaseOrContentContainingIgnoreCase(
-                query, query, pageable);
+    /**
+     * Full-text search through ForumSearchIndex. Results are ordered by relevance, so the sort
+     * of the pageable is ignored.
+     */
+    public Page<ForumPostSummaryDTO> searchPosts(String query, Pageable pageable) {
+        Page<Long> postIds = searchIndex.search(query, pageable);
+        if (postIds.isEmpty()) {
+            return new PageImpl<>(List.of(), pageable, postIds.getTotalElements());
+        }
+
+        Map<Long, ForumPostSummaryDTO> postsById = new HashMap<>();
+        postRepository.findSummariesByIds(postIds.getContent()).forEach(post -> postsById.put(post.getId(), post));
+
+        List<ForumPostSummaryDTO> posts = postIds.getContent().stream()
+                .map(postsById::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new PageImpl<>(posts, pageable, postIds.getTotalElements());
+    }
+
+
+    public int rebuildSearchIndex() {
+        return searchIndex.rebuild();
     }
 
 
@@ -100,6 +211,16 @@ public class ForumService {
     }
 
 
+    public CursorPage<ForumComment> getCommentsByCursor(Long postId, String cursor, int size) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<ForumComment> rows = after == null
+                ? commentRepository.findOldestByPostId(postId, limit)
+                : commentRepository.findNewerThanByPostId(postId, after.getTimestamp(), after.getId(), limit);
+        return CursorPage.of(rows, size, comment -> new KeysetCursor(comment.getCreatedAt(), comment.getId()));
+    }
+
+
     public ForumComment createComment(ForumComment comment) {
         return commentRepository.save(comment);
     }
@@ -134,11 +255,18 @@ public class ForumService {
 
         if (existingLike.isPresent()) {
             ForumLike like = existingLike.get();
-            like.setLike(isLike);
-            return likeRepository.save(like);
+            if (like.isLike() != isLike) {
+                like.setLike(isLike);
+                like = likeRepository.save(like);
+                postRepository.adjustLikeCounters(postId, isLike ? 1 : -1, isLike ? -1 : 1);
+                eventPublisher.publishEvent(new ForumPostChangedEvent(postId));
+            }
+            return like;
         } else {
-            ForumLike newLike = new ForumLike(user, post, isLike);
-            return likeRepository.save(newLike);
+            ForumLike newLike = likeRepository.save(new ForumLike(user, post, isLike));
+            postRepository.adjustLikeCounters(postId, isLike ? 1 : 0, isLike ? 0 : 1);
+            eventPublisher.publishEvent(new ForumPostChangedEvent(postId));
+            return newLike;
         }
     }
 
@@ -149,63 +277,104 @@ public class ForumService {
                 .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
 
         likeRepository.findByUserAndPost(user, post)
-                .ifPresent(like -> likeRepository.delete(like));
+                .ifPresent(like -> {
+                    likeRepository.delete(like);
+                    postRepository.adjustLikeCounters(postId, like.isLike() ? -1 : 0, like.isLike() ? 0 : -1);
+                    eventPublisher.publishEvent(new ForumPostChangedEvent(postId));
+                });
     }
 
 
-    public Long getLikeCount(Long postId) {
-        ForumPost post = postRepository.findById(postId)
+    public ForumLikeCountsDTO getLikeCounts(Long postId) {
+        return postRepository.findLikeCounts(postId)
                 .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
-
-        Long count = likeRepository.getTotalLikeCount(post);
-        return count != null ? count : 0L;
     }
 
 
-    public Long getLikesCount(Long postId) {
-        ForumPost post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
+    /**
+     * Returns the counters of every existing post in postIds, plus the user's own vote on each
+     * when userId is given, using one query for the counters and one for the votes.
+     */
+    public List<ForumLikeCountsDTO> getLikeCounts(Collection<Long> postIds, Long userId) {
+        List<ForumLikeCountsDTO> counts = postRepository.findLikeCountsByIds(postIds);
+        if (userId == null || counts.isEmpty()) {
+            return counts;
+        }
 
-        return likeRepository.countByPostAndIsLike(post, true);
+        Map<Long, Boolean> statuses = new HashMap<>();
+        for (Object[] row : likeRepository.findLikeStatuses(userId, postIds)) {
+            statuses.put((Long) row[0], (Boolean) row[1]);
+        }
+        counts.forEach(count -> count.setUserLikeStatus(statuses.get(count.getPostId())));
+        return counts;
     }
 
 
-    public Long getDislikesCount(Long postId) {
-        ForumPost post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
-
-        return likeRepository.countByPostAndIsLike(post, false);
+    public Boolean getUserLikeStatus(Long userId, Long postId) {
+        return likeRepository.findByUserIdAndPostId(userId, postId)
+                .map(ForumLike::isLike)
+                .orElse(null);
     }
 
 
-    public Boolean getUserLikeStatus(User user, Long postId) {
-        ForumPost post = postRepository.findById(postId)
-                .orElseThrow(() -> new IllegalArgumentException("Post not found with ID: " + postId));
-
-        return likeRepository.findByUserAndPost(user, post)
-                .map(ForumLike::isLike)
-                .orElse(null);
+    /**
+     * Repairs any drift between the denormalized like counters on forum_posts and the
+     * forum_likes rows. Also backfills the counters the first time it runs.
+     */
+    @Scheduled(initialDelay = 0, fixedDelayString = "${gds.app.forumLikeReconcileIntervalMs}")
+    @Transactional
+    public void reconcileLikeCounters() {
+        postRepository.recountLikeCounters();
+        postRepository.recomputeLikeScores();
+        postCache.invalidateAll();
     }
 
 
     public ForumPostPhoto savePhoto(ForumPostPhoto photo) {
-        return photoRepository.save(photo);
+        ForumPostPhoto savedPhoto = photoRepository.save(photo);
+        eventPublisher.publishEvent(new ForumPostChangedEvent(photo.getPost().getId()));
+        return savedPhoto;
     }
 
     public List<ForumPostPhoto> getPhotosByPost(ForumPost post) {
-        return photoRepository.findByPost(post);
+        return photoCache.get(post.getId(), photoRepository::findByPostId);
     }
 
     public Optional<ForumPostPhoto> getPhotoById(Long id) {
         return photoRepository.findById(id);
     }
 
+    @Transactional
     public void deletePhoto(ForumPostPhoto photo) {
         photoRepository.delete(photo);
+        eventPublisher.publishEvent(new ForumPhotosDeletedEvent(List.of(photo.getFilename())));
+        eventPublisher.publishEvent(new ForumPostChangedEvent(photo.getPost().getId()));
     }
 
     @Transactional
     public void deletePhotosByPost(ForumPost post) {
+        List<String> filenames = photoRepository.findFilenamesByPostId(post.getId());
         photoRepository.deleteByPost(post);
+        eventPublisher.publishEvent(new ForumPhotosDeletedEvent(filenames));
+        eventPublisher.publishEvent(new ForumPostChangedEvent(post.getId()));
+    }
+
+    // Applies to every photo sharing the stored file, since variants are shared with it.
+    public void updatePhotoVariantUrls(String filename, String thumbnailUrl, String mediumUrl) {
+        photoRepository.updateVariantUrls(filename, thumbnailUrl, mediumUrl);
+        photoRepository.findPostIdsByFilename(filename)
+                .forEach(postId -> eventPublisher.publishEvent(new ForumPostChangedEvent(postId)));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPostChanged(ForumPostChangedEvent event) {
+        postCache.invalidate(event.getPostId());
+        photoCache.invalidate(event.getPostId());
+    }
+
+    // Cached posts carry a copy of their author, which must not outlive a profile change.
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        postCache.asMap().values().removeIf(post -> event.getUserId().equals(post.getAuthor().getId()));
     }
 }
@@ -0,0 +1,211 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * Generates a thumbnail and a medium-sized JPEG of uploaded photos on the
+ * imageProcessingExecutor, using only ImageIO and Java2D.
+ * <p>
+ * Large images are decoded with source subsampling, so that a 10MB upload is never expanded
+ * to full resolution in memory, and then scaled down in halving steps, which keeps the result
+ * sharp without the cost of area averaging. Variants are stored next to the original under
+ * {@link MediaStorageService#derivedFilename}, so identical uploads share them and they are
+ * deleted with the original. Decoding and scaling run unlocked, but the files are written
+ * under the original's stored_files lock, and not at all once the photo has been deleted. The name includes the width, so a change of the configured widths
+ * gives new URLs instead of changing the content behind URLs that clients cache as immutable.
+ * An image already narrower than a variant is used as that variant as is.
+ */
+@Service
+public class ImageVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    @Value("${gds.app.imageThumbnailWidth}")
+    private int thumbnailWidth;
+
+    @Value("${gds.app.imageMediumWidth}")
+    private int mediumWidth;
+
+    @Autowired
+    @Qualifier("imageProcessingExecutor")
+    private TaskExecutor imageProcessingExecutor;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Queues variant generation for a stored photo. When it completes, the callback receives
+     * the filenames of the thumbnail and the medium variant. Nothing is called back if the
+     * image cannot be decoded or the queue is full; the photo is then shown at full size.
+     */
+    public void submit(String directory, String filename, BiConsumer<String, String> onReady) {
+        try {
+            imageProcessingExecutor.execute(() -> generate(directory, filename, onReady));
+        } catch (TaskRejectedException e) {
+            meterRegistry.counter("image.variants", "result", "rejected").increment();
+            logger.warn("Image processing queue is full, {} will have no variants", filename);
+        }
+    }
+
+    private void generate(String directory, String filename, BiConsumer<String, String> onReady) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            Path directoryPath = Paths.get(directory);
+            String thumbnail = MediaStorageService.derivedFilename(filename, "w" + thumbnailWidth, "jpg");
+            String medium = MediaStorageService.derivedFilename(filename, "w" + mediumWidth, "jpg");
+            boolean thumbnailExists = Files.exists(directoryPath.resolve(thumbnail));
+            boolean mediumExists = Files.exists(directoryPath.resolve(medium));
+
+            if (!thumbnailExists || !mediumExists) {
+                BufferedImage image = read(directoryPath.resolve(filename), mediumWidth);
+                if (image == null) {
+                    meterRegistry.counter("image.variants", "result", "unsupported").increment();
+                    return;
+                }
+                BufferedImage thumbnailImage = null;
+                BufferedImage mediumImage = null;
+                if (image.getWidth() <= thumbnailWidth) {
+                    thumbnail = filename;
+                } else if (!thumbnailExists) {
+                    thumbnailImage = scale(image, thumbnailWidth);
+                }
+                if (image.getWidth() <= mediumWidth) {
+                    medium = filename;
+                } else if (!mediumExists) {
+                    mediumImage = scale(image, mediumWidth);
+                }
+                if (!writeVariants(directory, filename, thumbnailImage, thumbnail, mediumImage, medium)) {
+                    // The photo was deleted, or its upload rolled back, while this was queued.
+                    meterRegistry.counter("image.variants", "result", "discarded").increment();
+                    return;
+                }
+            }
+
+            onReady.accept(thumbnail, medium);
+            sample.stop(meterRegistry.timer("image.variants.duration"));
+            meterRegistry.counter("image.variants", "result", "generated").increment();
+        } catch (IOException | RuntimeException e) {
+            meterRegistry.counter("image.variants", "result", "failed").increment();
+            logger.warn("Could not generate variants of {}: {}", filename, e.getMessage());
+        }
+    }
+
+    private boolean writeVariants(String directory, String filename, BufferedImage thumbnailImage, String thumbnail,
+                                  BufferedImage mediumImage, String medium) throws IOException {
+        if (thumbnailImage == null && mediumImage == null) {
+            return true;
+        }
+        Path directoryPath = Paths.get(directory);
+        return mediaStorageService.writeDerived(directory, filename, () -> {
+            if (thumbnailImage != null) {
+                write(thumbnailImage, directoryPath.resolve(thumbnail));
+            }
+            if (mediumImage != null) {
+                write(mediumImage, directoryPath.resolve(medium));
+            }
+        });
+    }
+
+    /**
+     * Decodes the image, skipping pixels while reading so that it comes out no smaller than
+     * twice the largest width needed. Returns null for formats ImageIO cannot read.
+     */
+    private static BufferedImage read(Path file, int largestWidth) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int subsampling = Math.max(1, reader.getWidth(0) / (largestWidth * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width) {
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+        int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = currentWidth == width ? height : Math.max(height, currentHeight / 2);
+
+            // JPEG has no alpha channel, so transparent areas are flattened onto white.
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, currentWidth, currentHeight, Color.WHITE, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (currentWidth > width);
+
+        return current;
+    }
+
+    // Written to a temporary file and renamed, so a variant is never visible half written.
+    private static void write(BufferedImage image, Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+            try (ImageOutputStream out = ImageIO.createImageOutputStream(temp.toFile())) {
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                param.setCompressionQuality(JPEG_QUALITY);
+                param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+                writer.setOutput(out);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.gds.model.StoredFile;
+import org.gds.repository.StoredFileRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Stores uploaded audio and photos in a content-addressed layout shared by all upload
+ * endpoints.
+ * <p>
+ * The upload is streamed to a temporary file in the target directory while its SHA-256 is
+ * computed, then renamed to {@code <hash><extension>} in one atomic step, so a file under its
+ * final name is always complete. If the directory already holds the same content, the
+ * temporary file is dropped and the existing file gains a reference instead. References are
+ * counted in stored_files, and a file is deleted when its last reference is released.
+ * <p>
+ * Files derived from a stored file, such as image variants, are named with
+ * {@link #derivedFilename}, written with {@link #writeDerived} and deleted together with it.
+ * <p>
+ * Store and release of the same file are serialized by a lock on its stored_files row, and the
+ * file is only moved into place or deleted while that lock is held. A release dropping the last
+ * reference therefore cannot delete a file that a concurrent upload, on this or another node
+ * sharing the database and upload directory, has just matched. The row is kept at zero
+ * references, so that later uploads of the same content find a row to lock instead of racing
+ * to insert one.
+ */
+@Service
+public class MediaStorageService {
+    private static final Logger logger = LoggerFactory.getLogger(MediaStorageService.class);
+
+    private static final int MAX_STORE_ATTEMPTS = 2;
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final AtomicLong storedUploads = new AtomicLong();
+    private final AtomicLong deduplicatedUploads = new AtomicLong();
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        meterRegistry.gauge("media.upload.dedup.ratio", this, MediaStorageService::dedupRatio);
+    }
+
+    /**
+     * Stores the upload in the given directory and returns the name it is stored under. Every
+     * successful call takes a reference that must be given back with {@link #release}.
+     */
+    public StoredMedia store(MultipartFile file, String directory) throws IOException {
+        String originalName = StringUtils.cleanPath(file.getOriginalFilename() == null ? "" : file.getOriginalFilename());
+        String store = storeName(directory);
+        Path uploadPath = Paths.get(directory);
+        Files.createDirectories(uploadPath);
+
+        Path temp = Files.createTempFile(uploadPath, ".upload-", ".tmp");
+        try {
+            MessageDigest digest = sha256();
+            long startedAt = System.nanoTime();
+            long size;
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                size = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long elapsed = System.nanoTime() - startedAt;
+            meterRegistry.summary("media.upload.bytes", "store", store).record(size);
+            if (elapsed > 0) {
+                meterRegistry.summary("media.upload.throughput", "store", store).record(size * 1_000_000_000.0 / elapsed);
+            }
+
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            String filename = contentHash + extensionOf(originalName);
+
+            StoredMedia media = null;
+            for (int attempt = 1; media == null; attempt++) {
+                try {
+                    media = transactionTemplate.execute(status ->
+                            reference(temp, directory, filename, originalName, contentHash, size));
+                } catch (DataIntegrityViolationException e) {
+                    // A concurrent first upload of the same content inserted the row; lock it on the retry.
+                    if (attempt == MAX_STORE_ATTEMPTS) {
+                        throw e;
+                    }
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+
+            if (media.isDeduplicated()) {
+                deduplicatedUploads.incrementAndGet();
+                meterRegistry.counter("media.upload.files", "store", store, "result", "deduplicated").increment();
+                meterRegistry.counter("media.upload.dedup.bytes", "store", store).increment(size);
+            } else {
+                storedUploads.incrementAndGet();
+                meterRegistry.counter("media.upload.files", "store", store, "result", "stored").increment();
+            }
+            return media;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gives back a reference taken by {@link #store} and deletes the file once nothing refers
+     * to it. Files uploaded before reference counting are not tracked and are deleted directly.
+     */
+    public void release(String directory, String filename) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<StoredFile> stored = storedFileRepository.findForUpdate(directory, filename);
+            if (stored.isPresent()) {
+                int remaining = stored.get().getRefCount() - 1;
+                if (remaining < 0) {
+                    // Already released; the file went with the last reference.
+                    return;
+                }
+                storedFileRepository.adjustRefCount(stored.get().getId(), -1);
+                if (remaining > 0) {
+                    return;
+                }
+            }
+            // Still under the row lock: an upload of the same content waits, then stores a fresh copy.
+            deleteFiles(Paths.get(directory), filename);
+        });
+    }
+
+    /**
+     * Runs the writer of files derived from a stored file under the same lock as store and
+     * release, so derived files are never written after the file they belong to was deleted.
+     * Returns false, without running the writer, if the file is no longer referenced.
+     */
+    public boolean writeDerived(String directory, String filename, DerivedFilesWriter writer) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                Optional<StoredFile> stored = storedFileRepository.findForUpdate(directory, filename);
+                if (stored.isPresent() && stored.get().getRefCount() <= 0
+                        || !Files.exists(Paths.get(directory).resolve(filename))) {
+                    return false;
+                }
+                try {
+                    writer.write();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return true;
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @FunctionalInterface
+    public interface DerivedFilesWriter {
+        void write() throws IOException;
+    }
+
+    /**
+     * Takes a reference to the stored file, moving the upload into place if the file is new or
+     * missing. Runs in a transaction holding the row lock, or inserting the row, until the file
+     * is in place.
+     */
+    private StoredMedia reference(Path temp, String directory, String filename, String originalName,
+                                  String contentHash, long size) {
+        Path target = Paths.get(directory).resolve(filename);
+        Optional<StoredFile> existing = storedFileRepository.findForUpdate(directory, filename);
+        if (existing.isPresent() && existing.get().getRefCount() > 0 && Files.exists(target)) {
+            storedFileRepository.adjustRefCount(existing.get().getId(), 1);
+            return new StoredMedia(filename, originalName, contentHash, size, true);
+        }
+
+        if (existing.isPresent()) {
+            // The file was released, or lost; the upload is about to put it back.
+            storedFileRepository.adjustRefCount(existing.get().getId(), 1);
+        } else {
+            // Flushed first, so that losing the race to insert the row leaves the directory untouched.
+            storedFileRepository.saveAndFlush(new StoredFile(directory, filename, contentHash, size));
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new StoredMedia(filename, originalName, contentHash, size, false);
+    }
+
+    private static void deleteFiles(Path uploadPath, String filename) {
+        // A filter rather than a glob, so that nothing in a stored name is read as a pattern.
+        String derivedPrefix = stemOf(filename) + "-";
+        try {
+            Files.deleteIfExists(uploadPath.resolve(filename));
+            try (DirectoryStream<Path> derived = Files.newDirectoryStream(uploadPath,
+                    path -> path.getFileName().toString().startsWith(derivedPrefix))) {
+                for (Path path : derived) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Error deleting file {}: {}", filename, e.getMessage());
+        }
+    }
+
+    /**
+     * Names a file derived from a stored one, e.g. {@code <hash>-w320.jpg}. Derived files live
+     * next to the original and are deleted when it is.
+     */
+    public static String derivedFilename(String filename, String variant, String extension) {
+        return stemOf(filename) + "-" + variant + "." + extension;
+    }
+
+    private static String stemOf(String filename) {
+        int i = filename.lastIndexOf('.');
+        return i > 0 ? filename.substring(0, i) : filename;
+    }
+
+    private double dedupRatio() {
+        long deduplicated = deduplicatedUploads.get();
+        long total = deduplicated + storedUploads.get();
+        return total == 0 ? 0 : (double) deduplicated / total;
+    }
+
+    private static String storeName(String directory) {
+        Path name = Paths.get(directory).getFileName();
+        return name == null ? directory : name.toString();
+    }
+
+    private static String extensionOf(String originalName) {
+        int i = originalName.lastIndexOf('.');
+        if (i <= 0) {
+            return "";
+        }
+        String extension = originalName.substring(i).toLowerCase(Locale.ROOT);
+        return extension.matches("\\.[a-z0-9]{1,10}") ? extension : "";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.gds.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.gds.dto.PresenceDeltaDTO;
+import org.gds.dto.PresenceSnapshotDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * In-memory roster of the users connected over STOMP to this node, keyed by session so that a
+ * user with several tabs open stays online until the last one closes.
+ * <p>
+ * Roster changes are not sent one by one: they are collected and published on this node's own
+ * topic, /topic/presence.&lt;node&gt;, as a single delta every gds.app.presenceBroadcastIntervalMs.
+ * A user who goes offline and comes back within the same interval, as happens on a reconnect,
+ * does not appear in the delta at all. Each delta carries a version; clients load the snapshot and then apply the deltas
+ * with a higher version.
+ * <p>
+ * With a shared STOMP broker every node keeps its own roster and version counter, so the
+ * snapshot names the topic its deltas go to. Clients fetch it over their STOMP connection,
+ * which reaches the node that tracks their session, and subscribe to that topic only.
+ */
+@Service
+public class PresenceService {
+
+    public static final String PRESENCE_TOPIC = "/topic/presence";
+
+    @Autowired
+    private SimpMessageSendingOperations messagingTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, String> usernamesBySession = new HashMap<>();
+    private final Map<String, Integer> sessionCounts = new HashMap<>();
+
+    private Set<String> cameOnline = new LinkedHashSet<>();
+    private Set<String> wentOffline = new LinkedHashSet<>();
+    private long version;
+
+    private final String topic = PRESENCE_TOPIC + "." + UUID.randomUUID().toString().substring(0, 8);
+
+    @PostConstruct
+    void registerMetrics() {
+        meterRegistry.gauge("presence.sessions", this, PresenceService::sessionCount);
+        meterRegistry.gauge("presence.users", this, PresenceService::userCount);
+    }
+
+    public synchronized void sessionConnected(String sessionId, String username) {
+        if (usernamesBySession.putIfAbsent(sessionId, username) != null) {
+            return;
+        }
+        if (sessionCounts.merge(username, 1, Integer::sum) == 1 && !wentOffline.remove(username)) {
+            cameOnline.add(username);
+        }
+    }
+
+    public synchronized void sessionDisconnected(String sessionId) {
+        String username = usernamesBySession.remove(sessionId);
+        if (username == null) {
+            return;
+        }
+        if (sessionCounts.merge(username, -1, Integer::sum) == 0) {
+            sessionCounts.remove(username);
+            if (!cameOnline.remove(username)) {
+                wentOffline.add(username);
+            }
+        }
+    }
+
+    /**
+     * Returns the users currently online, sorted by name, with the version of the last delta
+     * published.
+     */
+    public synchronized PresenceSnapshotDTO snapshot() {
+        List<String> users = new ArrayList<>(sessionCounts.keySet());
+        users.sort(null);
+        return new PresenceSnapshotDTO(topic, version, users);
+    }
+
+    @Scheduled(fixedDelayString = "${gds.app.presenceBroadcastIntervalMs}")
+    public void broadcast() {
+        PresenceDeltaDTO delta;
+        synchronized (this) {
+            if (cameOnline.isEmpty() && wentOffline.isEmpty()) {
+                return;
+            }
+            delta = new PresenceDeltaDTO(++version, List.copyOf(cameOnline), List.copyOf(wentOffline));
+            cameOnline = new LinkedHashSet<>();
+            wentOffline = new LinkedHashSet<>();
+        }
+        messagingTemplate.convertAndSend(topic, delta);
+    }
+
+    private synchronized int sessionCount() {
+        return usernamesBySession.size();
+    }
+
+    private synchronized int userCount() {
+        return sessionCounts.size();
+    }
+}
@@ -0,0 +1,43 @@
+package org.gds.service;
+
+/**
+ * The result of storing an upload through MediaStorageService.
+ */
+public class StoredMedia {
+    private final String filename;
+    private final String originalName;
+    private final String contentHash;
+    private final long size;
+    private final boolean deduplicated;
+
+    public StoredMedia(String filename, String originalName, String contentHash, long size, boolean deduplicated) {
+        this.filename = filename;
+        this.originalName = originalName;
+        this.contentHash = contentHash;
+        this.size = size;
+        this.deduplicated = deduplicated;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public String getOriginalName() {
+        return originalName;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Whether identical content was already stored, so no new file was written.
+     */
+    public boolean isDeduplicated() {
+        return deduplicated;
+    }
+}
@@ -5,7 +5,10 @@ import org.gds.model.User;
 import org.gds.model.Role;
 import org.gds.repository.UserRepository;
 import org.gds.repository.RefreshTokenRepository;
+import org.gds.security.services.TokenVersionService;
+import org.gds.security.services.UserChangedEvent;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,6 +28,15 @@ public class UserService {
     @Autowired
     private RefreshTokenRepository refreshTokenRepository;
 
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private ForumService forumService;
+
 
     public Optional<User> getUserByUsername(String username) {
         return userRepository.findByUsername(username);
@@ -41,6 +53,7 @@ public class UserService {
             .collect(Collectors.toList());
     }
 
+    @Transactional
     public void updateUserRole(Long userId, Integer newRole) {
         userRepository.findById(userId).ifPresent(user -> {
             Set<Role> roles = new HashSet<>();
@@ -48,7 +61,9 @@ public class UserService {
             role.setId(newRole);
             roles.add(role);
             user.setRoles(roles);
+            tokenVersionService.revoke(user);
             userRepository.save(user);
+            eventPublisher.publishEvent(new UserChangedEvent(userId));
         });
     }
 
@@ -67,8 +82,11 @@ public class UserService {
         }
 
         refreshTokenRepository.deleteByUser(user);
+        tokenVersionService.revokeDeleted(user);
+        forumService.deleteContentOf(userId);
 
         userRepository.delete(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
     @Transactional
@@ -86,7 +104,9 @@ public class UserService {
         }
 
         user.setBanned(true);
+        tokenVersionService.revoke(user);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
     @Transactional
@@ -95,6 +115,7 @@ public class UserService {
             .orElseThrow(() -> new RuntimeException("User not found"));
         user.setBanned(false);
         userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(userId));
     }
 
     private UserDto convertToDto(User user) {
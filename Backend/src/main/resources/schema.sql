@@ -1,2 +1,8 @@
 ALTER TABLE users ADD COLUMN IF NOT EXISTS banned BOOLEAN DEFAULT FALSE;
 
+-- Revocations made before token_revoked_at existed count from now, so they still cover the
+-- access tokens that were live at the time.
+UPDATE users SET token_revoked_at = CURRENT_TIMESTAMP WHERE token_version > 0 AND token_revoked_at IS NULL;
+
+-- Refresh tokens used to be one-to-one with users; drop the old unique constraint on user_id.
+ALTER TABLE refresh_tokens DROP CONSTRAINT IF EXISTS UK_7TDCD6AB5WSGOUDNVJ7XF1B7L;
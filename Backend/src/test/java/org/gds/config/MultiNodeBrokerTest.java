@@ -0,0 +1,309 @@
+package org.gds.config;
+
+import org.gds.Main;
+import org.gds.model.ERole;
+import org.gds.model.ForumPost;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.gds.security.jwt.JwtUtils;
+import org.gds.security.services.UserDetailsImpl;
+import org.gds.service.ForumService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompBrokerRelayMessageHandler;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+import org.springframework.util.ClassUtils;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.socket.WebSocketHttpHeaders;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+import org.springframework.web.socket.sockjs.client.SockJsClient;
+import org.springframework.web.socket.sockjs.client.WebSocketTransport;
+
+import java.lang.reflect.Type;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Runs two nodes against one database: node A in embedded mode hosts the STOMP broker, node B
+ * relays to it. Only runs in builds made with -Pembedded-broker.
+ */
+class MultiNodeBrokerTest {
+
+    private static final String EMBEDDED_BROKER_CONFIG = "org.gds.config.EmbeddedStompBrokerConfig";
+    private static final long TIMEOUT_MS = 10_000;
+
+    private static int relayPort;
+    private static ConfigurableApplicationContext nodeA;
+    private static ConfigurableApplicationContext nodeB;
+    private static String token;
+    private static String peerToken;
+
+    private final RestTemplate rest = new RestTemplate();
+
+    @BeforeAll
+    static void startNodes() throws Exception {
+        assumeTrue(ClassUtils.isPresent(EMBEDDED_BROKER_CONFIG, MultiNodeBrokerTest.class.getClassLoader()),
+                "requires a build with -Pembedded-broker");
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            relayPort = socket.getLocalPort();
+        }
+        nodeA = startNode("embedded", false);
+        nodeB = startNode("relay", false);
+        // Broadcasts go through each node's "system" session, which connects in the background.
+        for (ConfigurableApplicationContext node : List.of(nodeA, nodeB)) {
+            StompBrokerRelayMessageHandler relay = node.getBean(StompBrokerRelayMessageHandler.class);
+            awaitTrue(relay::isBrokerAvailable, "node never connected to the broker");
+        }
+
+        token = createUser("cluster-user");
+        peerToken = createUser("cluster-peer");
+    }
+
+    private static String createUser(String username) {
+        User user = new User(username, username + "@example.com", "{noop}secret",
+                "Test", "User", "0700000000", "Test");
+        user.setRoles(Set.of(nodeA.getBean(RoleRepository.class).findByName(ERole.ROLE_USER).orElseThrow()));
+        user = nodeA.getBean(UserRepository.class).save(user);
+        return nodeA.getBean(JwtUtils.class).generateJwtToken(UserDetailsImpl.build(user));
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        if (nodeB != null) {
+            nodeB.close();
+        }
+        if (nodeA != null) {
+            nodeA.close();
+        }
+    }
+
+    @Test
+    void chatSentOnOneNodeReachesTheOther() throws Exception {
+        BlockingQueue<Map<String, Object>> receivedOnA = new LinkedBlockingQueue<>();
+        BlockingQueue<Map<String, Object>> receivedOnB = new LinkedBlockingQueue<>();
+        StompSession sessionA = subscribe(nodeA, "/topic/public", receivedOnA);
+        StompSession sessionB = subscribe(nodeB, "/topic/public", receivedOnB);
+        try {
+            sessionA.send("/app/chat.sendMessage", Map.of("message", "hello from A"));
+            Map<String, Object> fromA = receivedOnB.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            assertNotNull(fromA, "message sent on node A never reached a subscriber on node B");
+            assertEquals("hello from A", fromA.get("message"));
+
+            sessionB.send("/app/chat.sendMessage", Map.of("message", "hello from B"));
+            Map<String, Object> fromB = poll(receivedOnA, "hello from B");
+            assertTrue(id(fromB) > id(fromA), "ids must follow send order across nodes");
+
+            // History, paging and trimming order by id, so it must hold message after message.
+            long previous = id(fromB);
+            for (int i = 0; i < 6; i++) {
+                StompSession sender = i % 2 == 0 ? sessionA : sessionB;
+                String message = "round " + i;
+                sender.send("/app/chat.sendMessage", Map.of("message", message));
+                long next = id(poll(i % 2 == 0 ? receivedOnB : receivedOnA, message));
+                assertTrue(next > previous, message + " got id " + next + " after " + previous);
+                previous = next;
+            }
+
+            Object idFromA = fromA.get("id");
+            awaitTrue(() -> historyIds(nodeB).contains(idFromA), "node B's history never showed node A's message");
+        } finally {
+            sessionA.disconnect();
+            sessionB.disconnect();
+        }
+    }
+
+    @Test
+    void postCreatedOnOneNodeBecomesSearchableOnTheOther() throws Exception {
+        User author = nodeA.getBean(UserRepository.class).findByUsername("cluster-user").orElseThrow();
+        nodeA.getBean(ForumService.class).createPost(
+                new ForumPost("Supercharger swap", "Notes from the other node", author, "general"));
+
+        ForumService searchOnB = nodeB.getBean(ForumService.class);
+        awaitTrue(() -> searchOnB.searchPosts("supercharger", PageRequest.of(0, 10)).getTotalElements() == 1,
+                "node B never indexed the post created on node A");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void eachNodePublishesItsRosterOnItsOwnTopic() throws Exception {
+        StompSession watcherA = connect(nodeA, token);
+        StompSession watcherB = connect(nodeB, token);
+        StompSession peer = null;
+        try {
+            String topicA = (String) snapshot(watcherA).get("topic");
+            String topicB = (String) snapshot(watcherB).get("topic");
+            assertNotEquals(topicA, topicB);
+
+            BlockingQueue<Map<String, Object>> deltasOnA = new LinkedBlockingQueue<>();
+            BlockingQueue<Map<String, Object>> deltasOnB = new LinkedBlockingQueue<>();
+            subscribe(watcherA, topicA, deltasOnA);
+            subscribe(watcherB, topicB, deltasOnB);
+
+            peer = connect(nodeB, peerToken);
+            awaitTrue(() -> deltasOnB.stream().anyMatch(delta -> ((List<String>) delta.get("online")).contains("cluster-peer")),
+                    "node B never published the user that connected to it");
+            assertTrue(((List<String>) snapshot(watcherB).get("users")).contains("cluster-peer"));
+
+            // Node A's roster and version counter are its own: nothing about node B's user.
+            assertFalse(((List<String>) snapshot(watcherA).get("users")).contains("cluster-peer"));
+            assertTrue(deltasOnA.stream().noneMatch(delta -> ((List<String>) delta.get("online")).contains("cluster-peer")));
+        } finally {
+            if (peer != null) {
+                peer.disconnect();
+            }
+            watcherA.disconnect();
+            watcherB.disconnect();
+        }
+    }
+
+    @Test
+    void writeBehindIsRefusedWithASharedBroker() {
+        Exception error = assertThrows(Exception.class, () -> startNode("relay", true).close());
+        assertTrue(NestedExceptionUtils.getMostSpecificCause(error).getMessage()
+                .contains("requires gds.app.chatWriteBehind=false"));
+    }
+
+    private static ConfigurableApplicationContext startNode(String brokerMode, boolean writeBehind) {
+        return new SpringApplicationBuilder(Main.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:gdscluster;DB_CLOSE_DELAY=-1",
+                        "--gds.app.stompBroker=" + brokerMode,
+                        "--gds.app.stompRelayPort=" + relayPort,
+                        "--gds.app.chatWriteBehind=" + writeBehind,
+                        "--gds.app.chatHistoryRefreshIntervalMs=200",
+                        "--gds.app.presenceBroadcastIntervalMs=200",
+                        "--gds.app.searchIndexRebuildIntervalMs=500");
+    }
+
+    private static String baseUrl(ConfigurableApplicationContext node) {
+        return "http://localhost:" + ((ServletWebServerApplicationContext) node).getWebServer().getPort();
+    }
+
+    private static StompSession subscribe(ConfigurableApplicationContext node, String destination,
+                                          BlockingQueue<Map<String, Object>> received) throws Exception {
+        StompSession session = connect(node, token);
+        subscribe(session, destination, received);
+        return session;
+    }
+
+    private static StompSession connect(ConfigurableApplicationContext node, String bearer) throws Exception {
+        WebSocketStompClient client = new WebSocketStompClient(
+                new SockJsClient(List.of(new WebSocketTransport(new StandardWebSocketClient()))));
+        client.setMessageConverter(new MappingJackson2MessageConverter());
+        client.setTaskScheduler(new ConcurrentTaskScheduler());
+
+        StompHeaders connectHeaders = new StompHeaders();
+        connectHeaders.add("Authorization", "Bearer " + bearer);
+        return client.connectAsync(baseUrl(node) + "/ws", new WebSocketHttpHeaders(),
+                connectHeaders, new StompSessionHandlerAdapter() {}).get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private static void subscribe(StompSession session, String destination,
+                                  BlockingQueue<Map<String, Object>> received) throws Exception {
+        // Wait for the broker to confirm the subscription, so that nothing sent afterwards is missed.
+        StompHeaders headers = new StompHeaders();
+        headers.setDestination(destination);
+        headers.setReceipt(UUID.randomUUID().toString());
+        CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        StompSession.Subscription subscription = session.subscribe(headers, collectInto(received));
+        subscription.addReceiptTask(() -> subscribed.complete(null));
+        subscription.addReceiptLostTask(() -> subscribed.completeExceptionally(new IllegalStateException("no receipt")));
+        subscribed.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // /app/presence is answered once, by the node the session is connected to. The broker never
+    // sees the subscription, and an UNSUBSCRIBE would make it close the connection.
+    private static Map<String, Object> snapshot(StompSession session) throws InterruptedException {
+        BlockingQueue<Map<String, Object>> received = new LinkedBlockingQueue<>();
+        session.subscribe("/app/presence", collectInto(received));
+        Map<String, Object> snapshot = received.poll(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        assertNotNull(snapshot, "no presence snapshot");
+        return snapshot;
+    }
+
+    private static StompFrameHandler collectInto(BlockingQueue<Map<String, Object>> received) {
+        return new StompFrameHandler() {
+            @Override
+            public Type getPayloadType(StompHeaders headers) {
+                return Map.class;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public void handleFrame(StompHeaders headers, Object payload) {
+                received.add((Map<String, Object>) payload);
+            }
+        };
+    }
+
+    private static long id(Map<String, Object> chat) {
+        return ((Number) chat.get("id")).longValue();
+    }
+
+    // Skips messages published before the one looked for, such as node A's own.
+    private static Map<String, Object> poll(BlockingQueue<Map<String, Object>> received, String message)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (System.currentTimeMillis() < deadline) {
+            Map<String, Object> chat = received.poll(100, TimeUnit.MILLISECONDS);
+            if (chat != null && message.equals(chat.get("message"))) {
+                return chat;
+            }
+        }
+        return fail("never received " + message);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object> historyIds(ConfigurableApplicationContext node) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setBearerAuth(token);
+        Map<String, Object> page = rest.exchange(baseUrl(node) + "/api/chat/history?size=100", HttpMethod.GET,
+                new HttpEntity<>(headers), Map.class).getBody();
+        return ((List<Map<String, Object>>) page.get("content")).stream().map(chat -> chat.get("id")).toList();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String failure) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail(failure);
+            }
+            Thread.sleep(100);
+        }
+    }
+}
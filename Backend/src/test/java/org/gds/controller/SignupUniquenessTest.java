@@ -0,0 +1,47 @@
+package org.gds.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Logins ignore case, so a username or email that only differs by case from an existing one
+ * must be refused at signup.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class SignupUniquenessTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void usernameAndEmailAreUniqueIgnoringCase() throws Exception {
+        signup("CaseUser", "CaseUser@example.com").andExpect(status().isOk());
+
+        signup("caseuser", "other@example.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: Username is already taken!"));
+        signup("other", "caseuser@EXAMPLE.com")
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value("Error: Email is already in use!"));
+    }
+
+    private ResultActions signup(String username, String email) throws Exception {
+        String body = """
+                {"username": "%s", "email": "%s", "password": "secret123", "firstName": "Test",
+                 "lastName": "User", "phoneNumber": "0700000000", "location": "Test"}
+                """.formatted(username, email);
+        return mockMvc.perform(post("/api/auth/signup").contentType(MediaType.APPLICATION_JSON).content(body));
+    }
+}
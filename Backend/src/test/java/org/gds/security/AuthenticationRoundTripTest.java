@@ -0,0 +1,113 @@
+package org.gds.security;
+
+import org.gds.model.ERole;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.gds.security.jwt.JwtUtils;
+import org.gds.security.services.UserDetailsImpl;
+import org.gds.security.services.UserDetailsServiceImpl;
+import org.gds.support.StatementCounter;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Checks the database round trips of the two authentication paths: resolving a login takes
+ * one query, and authenticating a request with an access token takes none.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AuthenticationRoundTripTest {
+    private static final Logger logger = LoggerFactory.getLogger(AuthenticationRoundTripTest.class);
+
+    private static final int ITERATIONS = 2000;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private JwtUtils jwtUtils;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void loginIsResolvedWithOneQueryAndThenCached() {
+        User user = createUser("roundtrip", "roundtrip@example.com");
+
+        StatementCounter.reset();
+        UserDetailsImpl loaded = (UserDetailsImpl) userDetailsService.loadUserByUsername("ROUNDTRIP@example.com");
+        assertEquals(user.getId(), loaded.getId());
+        assertEquals(1, StatementCounter.count(), "login lookup, roles included, in one statement");
+
+        StatementCounter.reset();
+        userDetailsService.loadUserByUsername("ROUNDTRIP@example.com");
+        assertEquals(0, StatementCounter.count(), "repeated login served from the cache");
+    }
+
+    @Test
+    void ambiguousLoginPrefersExactUsernameThenExactEmail() {
+        User upper = createUser("Dana", "dana.upper@example.com");
+        User lower = createUser("dana", "dana.lower@example.com");
+        User emailOwner = createUser("erik", "Dana.Mail@example.com");
+        User lookalike = createUser("dana.mail@example.com", "lookalike@example.com");
+
+        assertEquals(upper.getId(), loadId("Dana"));
+        assertEquals(lower.getId(), loadId("dana"));
+        assertEquals(upper.getId(), loadId("DANA"), "no exact match falls back to the oldest account");
+        assertEquals(emailOwner.getId(), loadId("Dana.Mail@example.com"));
+        assertEquals(lookalike.getId(), loadId("dana.mail@example.com"));
+    }
+
+    @Test
+    void authenticatedRequestDoesNotQueryTheDatabase() throws Exception {
+        User user = createUser("tokenonly", "tokenonly@example.com");
+        String token = "Bearer " + jwtUtils.generateJwtToken(UserDetailsImpl.build(user));
+
+        // An authenticated request to an unmapped path gets 404 rather than 401, and does no
+        // work besides authentication.
+        StatementCounter.reset();
+        mockMvc.perform(get("/api/round-trip-probe").header("Authorization", token))
+                .andExpect(status().isNotFound());
+        assertEquals(0, StatementCounter.count());
+
+        mockMvc.perform(get("/api/round-trip-probe")).andExpect(status().isUnauthorized());
+
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            mockMvc.perform(get("/api/round-trip-probe").header("Authorization", token));
+        }
+        long elapsed = System.nanoTime() - startedAt;
+        assertEquals(0, StatementCounter.count());
+        logger.info("Authenticated request: {} us on average over {} requests", elapsed / 1000 / ITERATIONS, ITERATIONS);
+    }
+
+    private Long loadId(String identifier) {
+        return ((UserDetailsImpl) userDetailsService.loadUserByUsername(identifier)).getId();
+    }
+
+    private User createUser(String username, String email) {
+        User user = new User(username, email, "{noop}secret", "Test", "User", "0700000000", "Test");
+        user.setRoles(Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,66 @@
+package org.gds.security;
+
+import org.gds.model.ERole;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.gds.security.services.TokenVersionService;
+import org.gds.security.services.UserDetailsImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TokenVersionServiceTest {
+
+    @Autowired
+    private TokenVersionService tokenVersionService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Test
+    void revocationIsForgottenOnceItsTokensHaveExpired() {
+        User user = new User("revoked-user", "revoked-user@example.com", "{noop}secret",
+                "Test", "User", "0700000000", "Test");
+        user.setRoles(Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+        user = userRepository.save(user);
+        UserDetailsImpl oldToken = UserDetailsImpl.build(user);
+
+        tokenVersionService.revoke(user);
+        userRepository.save(user);
+        tokenVersionService.refresh();
+        assertFalse(tokenVersionService.isCurrent(oldToken));
+        assertTrue(minimumVersions().containsKey(user.getId()));
+
+        // With no expiry left, every token issued before the revocation counts as expired.
+        Object jwtExpirationMs = ReflectionTestUtils.getField(tokenVersionService, "jwtExpirationMs");
+        ReflectionTestUtils.setField(tokenVersionService, "jwtExpirationMs", 0L);
+        try {
+            tokenVersionService.refresh();
+        } finally {
+            ReflectionTestUtils.setField(tokenVersionService, "jwtExpirationMs", jwtExpirationMs);
+        }
+        assertFalse(minimumVersions().containsKey(user.getId()));
+
+        // The database still holds the revocation, within the real expiry, for a restart or another node.
+        tokenVersionService.refresh();
+        assertFalse(tokenVersionService.isCurrent(oldToken));
+    }
+
+    private Map<?, ?> minimumVersions() {
+        return (Map<?, ?>) ReflectionTestUtils.getField(tokenVersionService, "minimumVersions");
+    }
+}
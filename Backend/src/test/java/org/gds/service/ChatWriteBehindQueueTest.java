@@ -0,0 +1,99 @@
+package org.gds.service;
+
+import org.gds.dto.ChatDTO;
+import org.gds.model.ERole;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "gds.app.chatWriteBehind=true")
+@ActiveProfiles("test")
+class ChatWriteBehindQueueTest {
+
+    @Autowired
+    private ChatWriteBehindQueue queue;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long senderId;
+
+    @BeforeEach
+    void setUp() {
+        senderId = userRepository.findByUsername("write-behind")
+                .orElseGet(() -> {
+                    User user = new User("write-behind", "write-behind@example.com", "{noop}secret",
+                            "Test", "User", "0700000000", "Test");
+                    user.setRoles(Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+                    return userRepository.save(user);
+                })
+                .getId();
+    }
+
+    @Test
+    void idsComeFromTheChatSequence() {
+        ChatDTO first = queue.enqueue("first", senderId, "write-behind");
+        ChatDTO second = queue.enqueue("second", senderId, "write-behind");
+        queue.flush();
+
+        assertTrue(second.getId() > first.getId());
+        assertEquals("second", jdbcTemplate.queryForObject("SELECT message FROM chats WHERE id = ?", String.class, second.getId()));
+
+        // Another node, or JPA in synchronous mode, draws its next block past the ids handed out here.
+        long nextBlock = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR chats_seq", Long.class);
+        assertTrue(nextBlock > second.getId());
+    }
+
+    @Test
+    void sequenceIsAdvancedPastExistingIds() {
+        long legacyId = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR chats_seq", Long.class) + 1000;
+        jdbcTemplate.update("INSERT INTO chats (id, message, user_id, timestamp) VALUES (?, 'legacy', ?, ?)",
+                legacyId, senderId, Timestamp.valueOf(LocalDateTime.now()));
+
+        ReflectionTestUtils.invokeMethod(queue, "skipIdsInUse");
+
+        assertTrue(jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR chats_seq", Long.class) > legacyId);
+    }
+
+    @Test
+    void cancelledMessageIsNeverWritten() {
+        ChatDTO chat = queue.enqueue("to be deleted", senderId, "write-behind");
+        queue.cancel(chat.getId());
+        queue.flush();
+
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chats WHERE id = ?", Integer.class, chat.getId()));
+    }
+
+    @Test
+    void rowThatCannotBeWrittenIsDeadLettered() {
+        ChatDTO good = queue.enqueue("kept", senderId, "write-behind");
+        ChatDTO orphan = queue.enqueue("sender is gone", Long.MAX_VALUE, "deleted");
+        queue.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM chats WHERE id = ?", Integer.class, good.getId()));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM chat_dead_letters WHERE message_id = ?", Integer.class, good.getId()));
+        assertEquals("sender is gone", jdbcTemplate.queryForObject(
+                "SELECT message FROM chat_dead_letters WHERE message_id = ?", String.class, orphan.getId()));
+    }
+}
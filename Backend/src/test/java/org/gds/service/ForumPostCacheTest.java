@@ -0,0 +1,53 @@
+package org.gds.service;
+
+import org.gds.model.ERole;
+import org.gds.model.ForumPost;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.gds.security.services.UserChangedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The post cache holds each post with its author, so it must follow changes to the author.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+class ForumPostCacheTest {
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Test
+    void cachedPostShowsTheAuthorsNewProfile() {
+        User author = new User("cache-author", "cache-author@example.com", "{noop}secret",
+                "Before", "User", "0700000000", "Test");
+        author.setRoles(Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+        author = userRepository.save(author);
+        Long postId = forumService.createPost(new ForumPost("Cached", "Content", author, "general")).getId();
+        assertEquals("Before", forumService.getPostById(postId).orElseThrow().getAuthor().getFirstName());
+
+        author.setFirstName("After");
+        userRepository.save(author);
+        eventPublisher.publishEvent(new UserChangedEvent(author.getId()));
+
+        assertEquals("After", forumService.getPostById(postId).orElseThrow().getAuthor().getFirstName());
+    }
+}
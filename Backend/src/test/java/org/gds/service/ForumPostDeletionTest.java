@@ -0,0 +1,115 @@
+package org.gds.service;
+
+import org.gds.model.ERole;
+import org.gds.model.ForumPost;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.gds.support.StatementCounter;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Deleting a post must not load its likes, so the work and the memory it takes do not grow
+ * with the number of likes.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ForumPostDeletionTest {
+    private static final Logger logger = LoggerFactory.getLogger(ForumPostDeletionTest.class);
+
+    private static final int LIKERS = 50_000;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private User author;
+    private List<Long> likerIds;
+
+    @BeforeAll
+    void seedLikers() {
+        author = new User("deletion-author", "deletion-author@example.com", "{noop}secret",
+                "Test", "User", "0700000000", "Test");
+        author.setRoles(Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+        author = userRepository.save(author);
+
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO users (username, email, password, first_name, last_name, phone_number, location, banned, token_version) " +
+                "VALUES (?, ?, 'x', 'Test', 'User', '0700000000', 'Test', FALSE, 0)",
+                IntStream.range(0, LIKERS).mapToObj(i -> new Object[]{"liker-" + i, "liker-" + i + "@example.com"}).toList());
+        likerIds = jdbcTemplate.queryForList("SELECT id FROM users WHERE username LIKE 'liker-%' ORDER BY id", Long.class);
+    }
+
+    @Test
+    void deleteUsesTheSameSetBasedStatementsForAnyNumberOfLikes() {
+        Long smallPost = createPostWithLikes(10);
+        Long largePost = createPostWithLikes(LIKERS);
+        Long untouchedPost = createPostWithLikes(100);
+
+        StatementCounter.reset();
+        forumService.deletePost(smallPost);
+        List<String> smallDelete = StatementCounter.statements();
+
+        StatementCounter.reset();
+        long startedAt = System.nanoTime();
+        forumService.deletePost(largePost);
+        long elapsedMs = (System.nanoTime() - startedAt) / 1_000_000;
+        List<String> largeDelete = StatementCounter.statements();
+        logger.info("Deleted a post with {} likes in {} ms using {}", LIKERS, elapsedMs, largeDelete);
+
+        assertEquals(smallDelete, largeDelete, "the statements must not depend on the number of likes");
+        assertTrue(largeDelete.stream().noneMatch(sql -> sql.startsWith("select") && sql.contains("forum_likes")),
+                "likes must not be loaded");
+        assertTrue(largeDelete.stream().filter(sql -> sql.startsWith("delete")).allMatch(sql -> sql.contains("where")),
+                "deletes must be set-based");
+        assertEquals(1, largeDelete.stream().filter(sql -> sql.startsWith("delete from forum_likes")).count());
+
+        assertEquals(0, countLikes(largePost));
+        assertEquals(100, countLikes(untouchedPost));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM forum_posts WHERE id = ?", Integer.class, largePost));
+    }
+
+    private Long createPostWithLikes(int likes) {
+        ForumPost post = forumService.createPost(
+                new ForumPost("Deletion test", "A post that is about to be deleted", author, "general"));
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate("INSERT INTO forum_likes (user_id, post_id, is_like, created_at) VALUES (?, ?, ?, ?)",
+                likerIds.subList(0, likes), 1000, (statement, userId) -> {
+                    statement.setLong(1, userId);
+                    statement.setLong(2, post.getId());
+                    statement.setBoolean(3, userId % 3 != 0);
+                    statement.setTimestamp(4, now);
+                });
+        return post.getId();
+    }
+
+    private int countLikes(Long postId) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM forum_likes WHERE post_id = ?", Integer.class, postId);
+    }
+}
@@ -0,0 +1,151 @@
+package org.gds.service;
+
+import org.gds.model.ERole;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the p99 latency of forum search through ForumSearchIndex with the leading-wildcard
+ * LIKE query it replaced, over 100,000 posts. Run with -Pbenchmark. The posts go into a
+ * database of their own, which is dropped with the context afterwards.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:gdsbenchmark")
+@ActiveProfiles("test")
+@DirtiesContext
+class ForumSearchBenchmarkTest {
+    private static final Logger logger = LoggerFactory.getLogger(ForumSearchBenchmarkTest.class);
+
+    private static final int POSTS = 100_000;
+    private static final int VOCABULARY = 5_000;
+    private static final int WARMUP = 10;
+    // With 100 samples p99 is the slowest one, so a single GC pause would decide the result. The
+    // index is fast enough to sample 1000 times; LIKE at about half a second per query is not.
+    private static final int INDEX_ITERATIONS = 1000;
+    private static final int LIKE_ITERATIONS = 200;
+
+    // The query the derived findByTitleContainingIgnoreCaseOrContentContainingIgnoreCase ran.
+    private static final String LIKE_WHERE = "WHERE UPPER(title) LIKE UPPER(?) OR UPPER(content) LIKE UPPER(?)";
+    private static final String LIKE_PAGE =
+            "SELECT id, title, category, created_at FROM forum_posts " + LIKE_WHERE + " ORDER BY created_at DESC LIMIT 10";
+    private static final String LIKE_COUNT = "SELECT COUNT(*) FROM forum_posts " + LIKE_WHERE;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void indexedSearchHasLowerP99ThanLike() {
+        Random random = new Random(42);
+        String[] words = IntStream.range(0, VOCABULARY)
+                .mapToObj(i -> randomWord(random))
+                .toArray(String[]::new);
+        seedPosts(words, random);
+        assertTrue(forumService.rebuildSearchIndex() >= POSTS);
+
+        // Common, medium and rare words, since LIKE cost depends on how early a page fills up.
+        List<String> queries = List.of(words[0], words[VOCABULARY / 10], words[VOCABULARY - 1]);
+
+        long[] indexed = measure(queries, INDEX_ITERATIONS, query -> forumService.searchPosts(query, PageRequest.of(0, 10)));
+        long[] like = measure(queries, LIKE_ITERATIONS, query -> {
+            String pattern = "%" + query + "%";
+            jdbcTemplate.queryForList(LIKE_PAGE, pattern, pattern);
+            jdbcTemplate.queryForObject(LIKE_COUNT, Long.class, pattern, pattern);
+        });
+
+        logger.info("Forum search over {} posts: index p50 {} us, p99 {} us; LIKE p50 {} us, p99 {} us",
+                POSTS, percentile(indexed, 50), percentile(indexed, 99), percentile(like, 50), percentile(like, 99));
+        assertTrue(percentile(indexed, 99) < percentile(like, 99));
+
+        // Both paths must agree on what matches a whole word.
+        String word = words[VOCABULARY - 1];
+        long indexMatches = forumService.searchPosts(word, PageRequest.of(0, 10)).getTotalElements();
+        String pattern = "%" + word + "%";
+        long likeMatches = jdbcTemplate.queryForObject(LIKE_COUNT, Long.class, pattern, pattern);
+        assertTrue(indexMatches > 0);
+        assertEquals(likeMatches, indexMatches);
+    }
+
+    private long[] measure(List<String> queries, int iterations, Consumer<String> search) {
+        for (int i = 0; i < WARMUP; i++) {
+            search.accept(queries.get(i % queries.size()));
+        }
+        // Start both measurements from a collected heap rather than inheriting earlier garbage.
+        System.gc();
+        long[] micros = new long[iterations];
+        for (int i = 0; i < iterations; i++) {
+            long startedAt = System.nanoTime();
+            search.accept(queries.get(i % queries.size()));
+            micros[i] = (System.nanoTime() - startedAt) / 1000;
+        }
+        Arrays.sort(micros);
+        return micros;
+    }
+
+    private static long percentile(long[] sorted, int percentile) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percentile / 100)];
+    }
+
+    private void seedPosts(String[] words, Random random) {
+        User author = new User("search-benchmark", "search-benchmark@example.com", "{noop}secret",
+                "Test", "User", "0700000000", "Test");
+        author.setRoles(java.util.Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+        Long authorId = userRepository.save(author).getId();
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = new ArrayList<>(POSTS);
+        for (int i = 0; i < POSTS; i++) {
+            rows.add(new Object[]{text(words, random, 5), text(words, random, 40), "general", authorId, now, now});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO forum_posts (title, content, category, user_id, created_at, updated_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?)", rows);
+    }
+
+    // Zipf-like choice, so that a few words are common and most are rare, as in real text.
+    private static String text(String[] words, Random random, int length) {
+        return IntStream.range(0, length)
+                .mapToObj(i -> words[(int) (Math.pow(random.nextDouble(), 3) * words.length)])
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String randomWord(Random random) {
+        StringBuilder word = new StringBuilder();
+        int length = 5 + random.nextInt(6);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+        return word.toString();
+    }
+}
@@ -0,0 +1,97 @@
+package org.gds.service;
+
+import org.gds.repository.ForumPostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ForumSearchIndexTest {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 10);
+
+    private ForumPostRepository postRepository;
+    private ForumSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        postRepository = mock(ForumPostRepository.class);
+        index = new ForumSearchIndex();
+        ReflectionTestUtils.setField(index, "postRepository", postRepository);
+    }
+
+    @Test
+    void changesMadeWhileRebuildingAreKept() {
+        index.index(1L, "turbo kit", "old content");
+        index.index(2L, "exhaust", "to be deleted");
+
+        // The rows are read before the changes below commit, so the rebuild sees stale data.
+        when(postRepository.findSearchRows(anyLong(), any())).thenAnswer(invocation -> {
+            List<Object[]> rows = List.of(
+                    new Object[]{1L, "turbo kit", "old content"},
+                    new Object[]{2L, "exhaust", "to be deleted"});
+            index.index(3L, "intercooler", "created during the rebuild");
+            index.remove(2L);
+            index.index(1L, "turbo kit", "updated content");
+            return rows;
+        });
+
+        assertEquals(2, index.rebuild());
+
+        assertEquals(List.of(3L), index.search("intercooler", FIRST_PAGE).getContent());
+        assertEquals(List.of(), index.search("exhaust", FIRST_PAGE).getContent());
+        assertEquals(List.of(1L), index.search("updated", FIRST_PAGE).getContent());
+        assertEquals(List.of(), index.search("old", FIRST_PAGE).getContent());
+    }
+
+    @Test
+    void changesAfterRebuildAreAppliedDirectly() {
+        when(postRepository.findSearchRows(anyLong(), any())).thenReturn(List.of());
+        index.rebuild();
+
+        index.index(4L, "Coilover suspension", "lowered");
+        assertEquals(List.of(4L), index.search("coil low", FIRST_PAGE).getContent());
+
+        index.remove(4L);
+        assertEquals(0, index.search("coil", FIRST_PAGE).getTotalElements());
+    }
+
+    @Test
+    void postDeletedBetweenBatchesDoesNotHideTheNextOne() {
+        // A table of 1200 posts, read in key order like the repository query.
+        NavigableMap<Long, String> table = new TreeMap<>();
+        for (long id = 1; id <= 1200; id++) {
+            table.put(id, id == 501 ? "alpha" : "filler");
+        }
+        AtomicInteger batches = new AtomicInteger();
+        when(postRepository.findSearchRows(anyLong(), any())).thenAnswer(invocation -> {
+            if (batches.incrementAndGet() == 2) {
+                // Deleted after the first batch was read, which shifts every later row by one.
+                table.remove(100L);
+                index.remove(100L);
+            }
+            Limit limit = invocation.getArgument(1);
+            return table.tailMap(invocation.<Long>getArgument(0), false).entrySet().stream()
+                    .limit(limit.max())
+                    .map(post -> new Object[]{post.getKey(), post.getValue(), ""})
+                    .toList();
+        });
+
+        assertEquals(1199, index.rebuild());
+        assertEquals(List.of(501L), index.search("alpha", FIRST_PAGE).getContent());
+        assertEquals(1198, index.search("filler", FIRST_PAGE).getTotalElements());
+    }
+}
@@ -0,0 +1,122 @@
+package org.gds.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MediaStorageServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    private Path uploadDir;
+
+    @Test
+    void fileIsDeletedWithItsLastReference() throws Exception {
+        String directory = uploadDir.toString();
+        StoredMedia first = mediaStorageService.store(upload("same content"), directory);
+        StoredMedia second = mediaStorageService.store(upload("same content"), directory);
+
+        assertFalse(first.isDeduplicated());
+        assertTrue(second.isDeduplicated());
+        assertEquals(List.of(2), refCounts(directory, first.getFilename()));
+
+        mediaStorageService.release(directory, first.getFilename());
+        assertTrue(Files.exists(uploadDir.resolve(first.getFilename())));
+
+        mediaStorageService.release(directory, second.getFilename());
+        assertFalse(Files.exists(uploadDir.resolve(first.getFilename())));
+        assertEquals(List.of(0), refCounts(directory, first.getFilename()));
+
+        // The row is kept, and the next upload of the same content puts the file back.
+        StoredMedia again = mediaStorageService.store(upload("same content"), directory);
+        assertFalse(again.isDeduplicated());
+        assertTrue(Files.exists(uploadDir.resolve(again.getFilename())));
+        assertEquals(List.of(1), refCounts(directory, again.getFilename()));
+    }
+
+    @Test
+    void derivedFilesAreNotWrittenAfterTheLastRelease() throws Exception {
+        String directory = uploadDir.toString();
+        StoredMedia media = mediaStorageService.store(upload("photo"), directory);
+        Path variant = uploadDir.resolve(MediaStorageService.derivedFilename(media.getFilename(), "w320", "jpg"));
+
+        assertTrue(mediaStorageService.writeDerived(directory, media.getFilename(), () -> Files.writeString(variant, "v")));
+        assertTrue(Files.exists(variant));
+
+        mediaStorageService.release(directory, media.getFilename());
+        assertFalse(Files.exists(variant));
+
+        // A variant generation that was queued before the release must not bring it back.
+        assertFalse(mediaStorageService.writeDerived(directory, media.getFilename(), () -> Files.writeString(variant, "v")));
+        assertFalse(Files.exists(variant));
+    }
+
+    @Test
+    void concurrentStoreAndReleaseNeverLoseAReferencedFile() throws Exception {
+        String directory = uploadDir.toString();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    int missing = 0;
+                    for (int i = 0; i < ROUNDS; i++) {
+                        StoredMedia media = mediaStorageService.store(upload("contended"), directory);
+                        if (!Files.exists(uploadDir.resolve(media.getFilename()))) {
+                            missing++;
+                        }
+                        mediaStorageService.release(directory, media.getFilename());
+                    }
+                    return missing;
+                }));
+            }
+            for (Future<Integer> result : results) {
+                assertEquals(0, result.get(), "a file was deleted while still referenced");
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        try (var files = Files.list(uploadDir)) {
+            assertEquals(0, files.count());
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM stored_files WHERE directory = ? AND ref_count <> 0", Integer.class, directory));
+    }
+
+    private List<Integer> refCounts(String directory, String filename) {
+        return jdbcTemplate.queryForList("SELECT ref_count FROM stored_files WHERE directory = ? AND filename = ?",
+                Integer.class, directory, filename);
+    }
+
+    private static MockMultipartFile upload(String content) {
+        return new MockMultipartFile("file", "photo.jpg", "image/jpeg", content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package org.gds.service;
+
+import org.gds.model.ERole;
+import org.gds.model.ForumPost;
+import org.gds.model.ForumPostPhoto;
+import org.gds.model.User;
+import org.gds.repository.RoleRepository;
+import org.gds.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Deleting a user removes their forum content, and releases the files of their photos.
+ */
+@SpringBootTest(properties = "forum.photo.upload.dir=" + UserDeletionTest.UPLOAD_DIR)
+@ActiveProfiles("test")
+class UserDeletionTest {
+    static final String UPLOAD_DIR = "target/test-uploads/forum";
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ForumService forumService;
+
+    @Autowired
+    private MediaStorageService mediaStorageService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void photosOfTheUsersPostsAreReleased() throws Exception {
+        User leaving = createUser("leaving-user");
+        User staying = createUser("staying-user");
+
+        ForumPost post = forumService.createPost(new ForumPost("Leaving", "Content", leaving, "general"));
+        StoredMedia stored = mediaStorageService.store(new MockMultipartFile("file", "photo.jpg", "image/jpeg",
+                "leaving photo".getBytes(StandardCharsets.UTF_8)), UPLOAD_DIR);
+        forumService.savePhoto(new ForumPostPhoto(stored.getFilename(), "/forum/" + stored.getFilename(),
+                stored.getOriginalName(), post));
+        Path file = Paths.get(UPLOAD_DIR).resolve(stored.getFilename());
+        assertTrue(Files.exists(file));
+
+        ForumPost otherPost = forumService.createPost(new ForumPost("Staying", "Content", staying, "general"));
+        forumService.likePost(leaving, otherPost.getId(), true);
+
+        userService.deleteUser(leaving.getId());
+
+        assertFalse(userRepository.existsById(leaving.getId()));
+        assertEquals(0, forumService.getLikeCounts(otherPost.getId()).getLikesCount());
+        // Files are released after commit, on the file cleanup executor.
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (Files.exists(file)) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("the photo of a deleted user's post was never released");
+            }
+            Thread.sleep(50);
+        }
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT ref_count FROM stored_files WHERE directory = ? AND filename = ?",
+                Integer.class, UPLOAD_DIR, stored.getFilename()));
+    }
+
+    private User createUser(String username) {
+        User user = new User(username, username + "@example.com", "{noop}secret",
+                "Test", "User", "0700000000", "Test");
+        user.setRoles(Set.of(roleRepository.findByName(ERole.ROLE_USER).orElseThrow()));
+        return userRepository.save(user);
+    }
+}
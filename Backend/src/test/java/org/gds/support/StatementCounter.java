@@ -0,0 +1,37 @@
+package org.gds.support;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Records the SQL statements Hibernate prepares on the current thread, so that a test can assert
+ * how many round trips an operation makes, and which, without counting scheduled background work.
+ */
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> STATEMENTS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        STATEMENTS.get().add(sql.replaceAll("\\s+", " ").trim().toLowerCase(Locale.ROOT));
+        return sql;
+    }
+
+    public static void reset() {
+        STATEMENTS.get().clear();
+    }
+
+    public static int count() {
+        return STATEMENTS.get().size();
+    }
+
+    /**
+     * The statements recorded since the last reset, normalized to lower case and single spaces.
+     */
+    public static List<String> statements() {
+        return List.copyOf(STATEMENTS.get());
+    }
+}
@@ -38,6 +38,11 @@ function Chat() {
   const [refreshInterval, setRefreshInterval] = useState(null);
   const messagesEndRef = useRef(null);
 
+  // Online users: a snapshot from the server kept current by roster deltas
+  const [onlineUsers, setOnlineUsers] = useState([]);
+  const presenceVersionRef = useRef(null);
+  const pendingPresenceRef = useRef([]);
+
   // State for notifications
   const [notification, setNotification] = useState({ open: false, message: "", severity: "success" });
 
@@ -88,8 +93,18 @@ function Chat() {
         });
       };
 
+      // Deltas that arrive before the snapshot are held back and replayed onto it
+      const handlePresenceChange = (delta) => {
+        if (presenceVersionRef.current === null) {
+          pendingPresenceRef.current.push(delta);
+        } else {
+          applyPresenceDelta(delta);
+        }
+      };
+
       // Connect to WebSocket
-      ChatService.connect(handleNewMessage)
+      ChatService.connect(handleNewMessage, handlePresenceChange)
+        .then(() => fetchPresence())
         .catch(err => {
           console.error("Error connecting to WebSocket:", err);
 
@@ -110,6 +125,7 @@ function Chat() {
     return () => {
       // Disconnect from WebSocket
       ChatService.disconnect();
+      presenceVersionRef.current = null;
 
       // Clear any polling interval
       if (refreshInterval) {
@@ -118,6 +134,33 @@ function Chat() {
     };
   }, [currentPage, isAuthenticated]);
 
+  const applyPresenceDelta = (delta) => {
+    if (delta.version <= presenceVersionRef.current) {
+      return;
+    }
+    presenceVersionRef.current = delta.version;
+    setOnlineUsers(prevUsers => {
+      const users = new Set(prevUsers);
+      delta.offline.forEach(username => users.delete(username));
+      delta.online.forEach(username => users.add(username));
+      return [...users].sort();
+    });
+  };
+
+  const fetchPresence = async () => {
+    try {
+      const response = await ChatService.getPresence();
+      presenceVersionRef.current = response.data.version;
+      setOnlineUsers(response.data.users);
+
+      const pending = pendingPresenceRef.current;
+      pendingPresenceRef.current = [];
+      pending.forEach(applyPresenceDelta);
+    } catch (err) {
+      console.error("Error fetching online users:", err);
+    }
+  };
+
   // Scroll to bottom when messages change
   useEffect(() => {
     scrollToBottom();
@@ -247,6 +290,11 @@ function Chat() {
               <VuiTypography variant="body2" color="text">
                 Chat with other members in real-time
               </VuiTypography>
+              {onlineUsers.length > 0 && (
+                <VuiTypography variant="caption" color="text">
+                  Online ({onlineUsers.length}): {onlineUsers.join(", ")}
+                </VuiTypography>
+              )}
             </VuiBox>
           </Grid>
 
@@ -10,11 +10,11 @@ import {
 	  deleteAudioFile,
 	  updateAudioFileTitle,
 	  updateAudioFilePosition,
+	  audioStreamUrl,
 	} from 'services/audioService';
 import AuthService from 'services/AuthService';
 
 
-const API_BASE = 'http://localhost:8081'; // Adjust if backend runs elsewhere
 
 const formatTime = (timeInSeconds) => {
 	if (isNaN(timeInSeconds)) return '0:00';
@@ -337,7 +337,8 @@ function AudioCard() {
 							</VuiBox>
 							<audio
 								ref={(element) => audioRefs.current[audio.id] = element}
-								src={API_BASE + audio.url}
+								src={audioStreamUrl(audio.id)}
+								preload="metadata"
 								onTimeUpdate={() => handleTimeUpdate(audio.id)}
 								onLoadedMetadata={() => {
 									setDuration(prev => ({ ...prev, [audio.id]: audioRefs.current[audio.id].duration }));
@@ -184,7 +184,7 @@ function CarPhotoGallery() {
 												<>
 													<VuiBox mb={2} sx={{ position: 'relative' }}>
 														<img 
-															src={API_BASE + photo.url} 
+															src={API_BASE + (photo.thumbnailUrl || photo.url)} 
 															alt={photo.title || photo.originalName}
 															style={{ 
 																width: '100%', 
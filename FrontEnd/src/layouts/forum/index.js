@@ -49,6 +49,7 @@ function Forum() {
   const [totalPages, setTotalPages] = useState(0);
   const [selectedCategory, setSelectedCategory] = useState(null);
   const [postLikes, setPostLikes] = useState({});
+  const [fullPostContent, setFullPostContent] = useState({});
 
   // State for comments
   const [comments, setComments] = useState({});
@@ -140,6 +141,40 @@ function Forum() {
     }
   };
 
+  // Fetch like information for a page of posts in one request
+  const fetchLikeInfoForPosts = async (postIds) => {
+    if (postIds.length === 0) return;
+    try {
+      const response = await ForumService.getLikeInfoForPosts(postIds);
+      setPostLikes(prev => {
+        const next = { ...prev };
+        response.data.forEach(info => {
+          next[info.postId] = {
+            likeCount: info.likeCount,
+            likesCount: info.likesCount,
+            dislikesCount: info.dislikesCount,
+            userLikeStatus: info.userLikeStatus
+          };
+        });
+        return next;
+      });
+    } catch (err) {
+      console.error("Error fetching like info for posts:", err);
+    }
+  };
+
+  // List responses only carry an excerpt, so the full content is loaded on demand
+  const fetchFullPostContent = async (postId) => {
+    try {
+      const response = await ForumService.getPostById(postId);
+      setFullPostContent(prev => ({ ...prev, [postId]: response.data.content }));
+      return response.data.content;
+    } catch (err) {
+      console.error(`Error fetching post ${postId}:`, err);
+      return null;
+    }
+  };
+
   // Fetch comment count for a post
   const fetchCommentCount = async (postId) => {
     try {
@@ -349,11 +384,13 @@ function Forum() {
       setTotalPages(response.data.totalPages);
       setLoading(false);
 
-      // Fetch like information, comment counts, and photos for each post
+      // Fetch like information for the page, then comment counts and photos for each post
+      fetchLikeInfoForPosts(response.data.content.map(post => post.id));
       response.data.content.forEach(post => {
-        fetchLikeInfo(post.id);
         fetchCommentCount(post.id);
-        fetchPostPhotos(post.id);
+        if (post.photoCount > 0) {
+          fetchPostPhotos(post.id);
+        }
       });
     } catch (err) {
       console.error("Error fetching posts:", err);
@@ -529,6 +566,7 @@ function Forum() {
           newPostCategory
         );
         postId = editingPost.id;
+        setFullPostContent(prev => ({ ...prev, [postId]: response.data.content }));
         setNotification({
           open: true,
           message: "Post updated successfully",
@@ -588,14 +626,21 @@ function Forum() {
   };
 
   // Handle opening the post dialog
-  const handleOpenPostDialog = (post = null) => {
+  const handleOpenPostDialog = async (post = null) => {
     if (post) {
       // Editing existing post
       setEditingPost(post);
       setNewPostTitle(post.title);
-      setNewPostContent(post.content);
+      setNewPostContent(fullPostContent[post.id] ?? post.excerpt);
       setNewPostCategory(post.category);
 
+      if (fullPostContent[post.id] === undefined) {
+        const content = await fetchFullPostContent(post.id);
+        if (content !== null) {
+          setNewPostContent(content);
+        }
+      }
+
       // Fetch photos for the post if editing
       fetchPostPhotos(post.id);
     } else {
@@ -716,7 +761,7 @@ function Forum() {
   // Check if user can edit/delete a post
   const canEditPost = (post) => {
     if (!isAuthenticated || !currentUser) return false;
-    return post.author.id === currentUser.id || 
+    return post.authorId === currentUser.id || 
            (currentUser.roles && currentUser.roles.includes("ROLE_ADMIN"));
   };
 
@@ -919,7 +964,7 @@ function Forum() {
 
                         <VuiBox display="flex" alignItems="center" mb={2}>
                           <VuiTypography variant="caption" color="text" mr={2}>
-                            Posted by {post.author.username}
+                            Posted by {post.authorUsername}
                           </VuiTypography>
                           <VuiTypography variant="caption" color="text" mr={2}>
                             in {post.category}
@@ -930,8 +975,19 @@ function Forum() {
                         </VuiBox>
 
                         <VuiTypography variant="body2" color="text" mb={2}>
-                          {post.content}
+                          {fullPostContent[post.id] ?? post.excerpt}
                         </VuiTypography>
+                        {fullPostContent[post.id] === undefined && post.truncated && (
+                          <VuiTypography
+                            variant="caption"
+                            color="info"
+                            mb={2}
+                            sx={{ cursor: "pointer", display: "block" }}
+                            onClick={() => fetchFullPostContent(post.id)}
+                          >
+                            Read more
+                          </VuiTypography>
+                        )}
 
                         {/* Display post photos if available */}
                         {postPhotos[post.id] && postPhotos[post.id].length > 0 && (
@@ -957,7 +1013,7 @@ function Forum() {
                                   }}
                                 >
                                   <img
-                                    src={`http://localhost:8081${photo.url}`}
+                                    src={`http://localhost:8081${photo.thumbnailUrl || photo.url}`}
                                     alt={photo.title || "Post image"}
                                     style={{
                                       width: '100%',
@@ -1490,7 +1546,7 @@ function Forum() {
               }}
             >
               <img
-                src={`http://localhost:8081${selectedPhoto.url}`}
+                src={`http://localhost:8081${selectedPhoto.mediumUrl || selectedPhoto.url}`}
                 alt={selectedPhoto.title || "Post image"}
                 style={{
                   maxWidth: '100%',
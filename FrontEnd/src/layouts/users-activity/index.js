@@ -22,7 +22,7 @@ function UsersActivity() {
         const activitiesPromises = users.map(async (user) => {
           const forumPosts = await ForumService.getAllPosts(0, 1000, "createdAt", "desc");
           const userForumPosts = forumPosts.data.content.filter(
-              (post) => post.author && post.author.id === user.id
+              (post) => post.authorId === user.id
           );
 
           const carsResponse = await axios.get(`/cars/admin/user/${user.id}`);
@@ -44,6 +44,12 @@ class AuthService {
               if (newToken) {
                 this.setToken(newToken);
 
+                // Refresh tokens are rotated on every use
+                const newRefreshToken = response?.data?.refreshToken;
+                if (newRefreshToken) {
+                  this.setRefreshToken(newRefreshToken);
+                }
+
                 // Update the original request with the new token
                 originalRequest.headers["Authorization"] = `Bearer ${newToken}`;
                 return axios(originalRequest);
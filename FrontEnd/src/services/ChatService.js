@@ -14,12 +14,14 @@ class ChatService {
   constructor() {
     this.stompClient = null;
     this.subscription = null;
+    this.presenceSubscription = null;
     this.connected = false;
     this.messageHandlers = [];
+    this.presenceHandlers = [];
   }
 
 
-  connect(onMessageReceived) {
+  connect(onMessageReceived, onPresenceChanged) {
     // Check if user is authenticated before connecting
     if (!AuthService.isAuthenticated()) {
       return Promise.reject(new Error("User is not authenticated"));
@@ -29,6 +31,9 @@ class ChatService {
     if (onMessageReceived) {
       this.messageHandlers.push(onMessageReceived);
     }
+    if (onPresenceChanged) {
+      this.presenceHandlers.push(onPresenceChanged);
+    }
 
     // If already connected, return a resolved promise
     if (this.connected) {
@@ -73,7 +78,18 @@ class ChatService {
           body: JSON.stringify({ type: 'JOIN' })
         });
 
-        resolve();
+        // Each server node publishes roster changes (users coming online or going offline) on
+        // its own topic; ask the node this connection landed on which one to follow
+        this.requestPresence().then((snapshot) => {
+          if (this.presenceSubscription) {
+            this.presenceSubscription.unsubscribe();
+          }
+          this.presenceSubscription = this.stompClient.subscribe(snapshot.topic, (message) => {
+            const delta = JSON.parse(message.body);
+            this.presenceHandlers.forEach(handler => handler(delta));
+          });
+          resolve();
+        });
       };
 
       // Define what happens on error
@@ -95,6 +111,10 @@ class ChatService {
         this.subscription.unsubscribe();
         this.subscription = null;
       }
+      if (this.presenceSubscription) {
+        this.presenceSubscription.unsubscribe();
+        this.presenceSubscription = null;
+      }
 
       this.stompClient.deactivate();
       this.stompClient = null;
@@ -164,6 +184,32 @@ class ChatService {
   }
 
 
+  // Users currently online, with the version of the last roster change applied. Asked over the
+  // WebSocket when connected, so the roster comes from the node whose deltas we receive
+  getPresence() {
+    // Check if user is authenticated before making the API call
+    if (!AuthService.isAuthenticated()) {
+      return Promise.reject(new Error("User is not authenticated"));
+    }
+    if (this.stompClient && this.connected) {
+      return this.requestPresence().then((snapshot) => ({ data: snapshot }));
+    }
+    return axios.get(`${API_URL}presence`);
+  }
+
+
+  // The server answers a subscription to /app/presence once, with the current snapshot. It is
+  // never unsubscribed: the broker does not know it and would close the connection. Reusing
+  // the same id replaces the previous callback instead
+  requestPresence() {
+    return new Promise((resolve) => {
+      this.stompClient.subscribe('/app/presence', (message) => {
+        resolve(JSON.parse(message.body));
+      }, { id: 'presence-snapshot' });
+    });
+  }
+
+
   sendMessage(message) {
     // Check if user is authenticated before making the API call
     if (!AuthService.isAuthenticated()) {
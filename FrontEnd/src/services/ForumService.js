@@ -81,6 +81,10 @@ class ForumService {
   getLikeInfo(postId) {
     return axios.get(`${API_URL}posts/${postId}/likes`);
   }
+
+  getLikeInfoForPosts(postIds) {
+    return axios.get(`${API_URL}posts/likes?postIds=${postIds.join(",")}`);
+  }
 }
 
 export default new ForumService();
@@ -13,3 +13,6 @@ export const uploadAudioFile = (file, title) => {
 export const deleteAudioFile          = (id)           => axiosInstance.delete(`/audio/${id}`);
 export const updateAudioFileTitle     = (id, title)    => axiosInstance.put(`/audio/${id}/title`,    { title });
 export const updateAudioFilePosition  = (id, position) => axiosInstance.put(`/audio/${id}/position`, { position });
+
+// Supports HTTP Range, so seeking only downloads the part of the file that is played
+export const audioStreamUrl = (id) => `${axiosInstance.defaults.baseURL}/audio/${id}/stream`;
@@ -43,6 +43,11 @@ axiosInstance.interceptors.response.use(
                         newAccessToken.includes(".")
                     ) {
                         AuthService.setToken(newAccessToken);
+                        // Refresh tokens are rotated on every use
+                        const newRefreshToken = response?.data?.refreshToken;
+                        if (newRefreshToken) {
+                            AuthService.setRefreshToken(newRefreshToken);
+                        }
                         originalRequest.headers = originalRequest.headers || {};
                         originalRequest.headers["Authorization"] = `Bearer ${newAccessToken}`;
                         return axiosInstance(originalRequest);